@@ -0,0 +1,41 @@
+package io.github.xiejx618.replace.benchmark;
+
+import io.github.xiejx618.replace.ReplaceBeanInitializer;
+import io.github.xiejx618.replace.benchmark.bean.ServiceExt;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Map;
+
+/**
+ * 基准测试公共方法
+ */
+final class Benchmarks {
+    static final String SERVICE_EXT = ServiceExt.class.getName();
+
+    private Benchmarks() {
+    }
+
+    /**
+     * 创建未刷新的上下文
+     *
+     * @param classLoader 类加载器, 为null时使用默认类加载器
+     * @param properties  配置
+     * @param starter     是否执行ReplaceBeanInitializer
+     * @return 上下文
+     */
+    static GenericApplicationContext context(ClassLoader classLoader, Map<String, Object> properties, boolean starter) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        if (classLoader != null) {
+            context.setClassLoader(classLoader);
+        }
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.setEnvironment(environment);
+        if (starter) {
+            new ReplaceBeanInitializer().initialize(context);
+        }
+        return context;
+    }
+}
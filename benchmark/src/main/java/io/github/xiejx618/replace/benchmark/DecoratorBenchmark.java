@@ -0,0 +1,62 @@
+package io.github.xiejx618.replace.benchmark;
+
+import io.github.xiejx618.replace.benchmark.bean.Service;
+import io.github.xiejx618.replace.benchmark.bean.ServiceDecorator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 替换后bean的调用开销: 原bean直接调用, 子类替换和装饰替换对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoratorBenchmark {
+    private GenericApplicationContext context;
+    private Service original;
+    private Service subclass;
+    private Service decorator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.subclassService.class-name", Benchmarks.SERVICE_EXT);
+        properties.put("replace.mappings.decoratedService.class-name", ServiceDecorator.class.getName());
+        properties.put("replace.mappings.decoratedService.mode", "decorator");
+        context = Benchmarks.context(null, properties, true);
+        context.registerBean("originalService", Service.class);
+        context.registerBean("subclassService", Service.class);
+        context.registerBean("decoratedService", Service.class);
+        context.refresh();
+        original = context.getBean("originalService", Service.class);
+        subclass = context.getBean("subclassService", Service.class);
+        decorator = context.getBean("decoratedService", Service.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String original() {
+        return original.hello();
+    }
+
+    @Benchmark
+    public String subclass() {
+        return subclass.hello();
+    }
+
+    @Benchmark
+    public String decorator() {
+        return decorator.hello();
+    }
+}
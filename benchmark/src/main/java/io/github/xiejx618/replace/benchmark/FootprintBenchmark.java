@@ -0,0 +1,131 @@
+package io.github.xiejx618.replace.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import io.github.xiejx618.replace.Replace;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 刷新后上下文保留的堆内存, variant:
+ * <ul>
+ * <li>none: 没有组件.</li>
+ * <li>starter: 使用组件. 与none之差为替换注册表, 扫描结果和组件的其它静态缓存保留的内存, 扫描过的普通类的元数据不应保留.</li>
+ * <li>cachingReader: 没有组件, 刷新前按优化前的方式用CachingMetadataReaderFactory(context)扫描同样的包,
+ * 读取的元数据缓存在上下文的资源缓存中, 直到上下文关闭. 与starter对比即为优化节省的内存.</li>
+ * </ul>
+ * 结果看retainedBytes, 耗时包含GC, 没有参考意义
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FootprintBenchmark {
+    @Param({"1000", "10000"})
+    public int size;
+    @Param({"none", "starter", "cachingReader"})
+    public String variant;
+
+    private Path temp;
+    private URL url;
+    private String pkg;
+    private Map<String, Object> properties;
+    private URLClassLoader classLoader;
+    private GenericApplicationContext context;
+
+    /**
+     * 刷新前后已使用堆内存之差(字节)
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        temp = Files.createTempDirectory("replace-footprint");
+        Path classes = temp.resolve("classes");
+        pkg = "bench.f" + size;
+        SyntheticClasses.write(classes, pkg, size);
+        url = classes.toUri().toURL();
+        properties = new HashMap<>();
+        properties.put("replace.packages", pkg);
+    }
+
+    /**
+     * 每次使用新的类加载器, 不复用上次的共享扫描结果
+     */
+    @Setup(Level.Iteration)
+    public void newClassLoader() {
+        classLoader = new URLClassLoader(new URL[]{url}, FootprintBenchmark.class.getClassLoader());
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException {
+        context.close();
+        context = null;
+        classLoader.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(temp);
+    }
+
+    @Benchmark
+    public void refresh(Footprint footprint) throws IOException {
+        long before = usedHeap();
+        context = Benchmarks.context(classLoader, properties, "starter".equals(variant));
+        if ("cachingReader".equals(variant)) {
+            cachingReaderScan(context, pkg);
+        }
+        context.refresh();
+        footprint.retainedBytes = usedHeap() - before;
+    }
+
+    /**
+     * 优化前的扫描方式: 每个class文件的MetadataReader缓存在上下文(DefaultResourceLoader)的资源缓存中
+     */
+    private static void cachingReaderScan(GenericApplicationContext context, String pkg) throws IOException {
+        MetadataReaderFactory readerFactory = new CachingMetadataReaderFactory(context);
+        int found = 0;
+        for (Resource resource : context.getResources(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX
+                + ClassUtils.convertClassNameToResourcePath(pkg) + "/**/*.class")) {
+            if (readerFactory.getMetadataReader(resource).getAnnotationMetadata().hasAnnotation(Replace.class.getName())) {
+                found++;
+            }
+        }
+        if (found == 0) {
+            throw new IllegalStateException("没有扫描到@Replace类:" + pkg);
+        }
+    }
+
+    /**
+     * 多次GC后的已使用堆内存
+     */
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
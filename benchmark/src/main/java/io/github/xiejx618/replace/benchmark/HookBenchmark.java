@@ -0,0 +1,63 @@
+package io.github.xiejx618.replace.benchmark;
+
+import io.github.xiejx618.replace.ReplaceBeanPostProcessor;
+import io.github.xiejx618.replace.benchmark.bean.Service;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个没有替换的bean实例化前经过ReplaceBeanPostProcessor的开销, 与空的InstantiationAwareBeanPostProcessor对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HookBenchmark {
+    //注册表中的替换数量
+    @Param({"1", "100"})
+    public int replacements;
+
+    private final InstantiationAwareBeanPostProcessor noop = new InstantiationAwareBeanPostProcessor() {
+    };
+    private InstantiationAwareBeanPostProcessor replace;
+    private String[] beanNames;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> properties = new HashMap<>();
+        for (int i = 0; i < replacements; i++) {
+            properties.put("replace.mappings.replaced" + i + ".class-name", Benchmarks.SERVICE_EXT);
+        }
+        GenericApplicationContext context = Benchmarks.context(null, properties, true);
+        replace = (InstantiationAwareBeanPostProcessor) ((DefaultListableBeanFactory) context.getBeanFactory())
+                .getBeanPostProcessors().stream().filter(ReplaceBeanPostProcessor.class::isInstance)
+                .findFirst().orElseThrow(IllegalStateException::new);
+        beanNames = new String[1024];
+        for (int i = 0; i < beanNames.length; i++) {
+            beanNames[i] = "service" + i;
+        }
+    }
+
+    private String nextBeanName() {
+        return beanNames[next++ & (beanNames.length - 1)];
+    }
+
+    @Benchmark
+    public Object baseline() {
+        return noop.postProcessBeforeInstantiation(Service.class, nextBeanName());
+    }
+
+    @Benchmark
+    public Object postProcessBeforeInstantiation() {
+        return replace.postProcessBeforeInstantiation(Service.class, nextBeanName());
+    }
+}
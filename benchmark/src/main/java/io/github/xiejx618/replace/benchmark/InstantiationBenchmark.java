@@ -0,0 +1,85 @@
+package io.github.xiejx618.replace.benchmark;
+
+import io.github.xiejx618.replace.benchmark.bean.Service;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 替换bean通过instanceSupplier实例化, 与不使用组件的Spring实例化对比.
+ * reflective为基线: 按缓存实例化计划之前的方式, 每次实例化都加载类,查找构造函数再反射调用
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstantiationBenchmark {
+    private static final String SINGLETON = "singletonService";
+    private static final String PROTOTYPE = "prototypeService";
+    private static final String REFLECTIVE = "reflectiveService";
+
+    //true为替换后的bean, false为不使用组件
+    @Param({"true", "false"})
+    public boolean replace;
+
+    private GenericApplicationContext context;
+    private DefaultListableBeanFactory beanFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings." + SINGLETON + ".class-name", Benchmarks.SERVICE_EXT);
+        properties.put("replace.mappings." + PROTOTYPE + ".class-name", Benchmarks.SERVICE_EXT);
+        context = Benchmarks.context(null, properties, replace);
+        context.registerBean(SINGLETON, Service.class);
+        context.registerBean(PROTOTYPE, Service.class, bd -> bd.setScope(BeanDefinition.SCOPE_PROTOTYPE));
+        context.registerBean(REFLECTIVE, Service.class, InstantiationBenchmark::reflective,
+                bd -> bd.setScope(BeanDefinition.SCOPE_PROTOTYPE));
+        context.refresh();
+        beanFactory = (DefaultListableBeanFactory) context.getBeanFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object prototype() {
+        return beanFactory.getBean(PROTOTYPE);
+    }
+
+    @Benchmark
+    public Object prototypeReflective() {
+        return beanFactory.getBean(REFLECTIVE);
+    }
+
+    /**
+     * 销毁后重新创建单例, 测量单例的完整创建过程
+     */
+    @Benchmark
+    public Object singleton() {
+        beanFactory.destroySingleton(SINGLETON);
+        return beanFactory.getBean(SINGLETON);
+    }
+
+    /**
+     * 缓存实例化计划之前的实例化方式: Class.forName, getConstructors, Constructor#newInstance
+     */
+    private static Service reflective() {
+        try {
+            Constructor<?> constructor = Class.forName(Benchmarks.SERVICE_EXT).getConstructors()[0];
+            return (Service) constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.xiejx618.replace.benchmark;
+
+import io.github.xiejx618.replace.ReplaceRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大量第三方jar的classpath上扫描, replace.scan.jars只扫描app-*.jar与扫描所有jar对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JarFilterBenchmark {
+    private static final String PACKAGE = "bench.app";
+
+    //第三方jar数量
+    @Param({"50", "300"})
+    public int libraries;
+    @Param({"true", "false"})
+    public boolean filter;
+
+    private Path temp;
+    private URLClassLoader classLoader;
+    private Map<String, Object> properties;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        temp = Files.createTempDirectory("replace-jars");
+        URL[] urls = new URL[libraries + 1];
+        for (int i = 0; i < libraries; i++) {
+            Path classes = temp.resolve("lib" + i);
+            SyntheticClasses.write(classes, "lib.l" + i, 20);
+            urls[i] = SyntheticClasses.jar(classes, temp.resolve("lib-" + i + ".jar")).toUri().toURL();
+        }
+        Path classes = temp.resolve("app");
+        SyntheticClasses.write(classes, PACKAGE, 200);
+        //应用jar放在最后, 不过滤时需要先查找所有第三方jar
+        urls[libraries] = SyntheticClasses.jar(classes, temp.resolve("app-1.0.jar")).toUri().toURL();
+        classLoader = new URLClassLoader(urls, JarFilterBenchmark.class.getClassLoader());
+        properties = new HashMap<>();
+        properties.put("replace.packages", PACKAGE);
+        //每次都重新扫描, 不使用共享的扫描结果
+        properties.put("replace.scan.shared", "false");
+        if (filter) {
+            properties.put("replace.scan.jars", "app-*.jar");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        classLoader.close();
+        FileSystemUtils.deleteRecursively(temp);
+    }
+
+    /**
+     * 每次使用新的类加载器, 模拟启动时jar都还没有打开
+     */
+    @Benchmark
+    public ReplaceRegistry registerFromScan() throws IOException {
+        try (URLClassLoader loader = new URLClassLoader(classLoader.getURLs(), JarFilterBenchmark.class.getClassLoader())) {
+            return ReplaceRegistry.get(Benchmarks.context(loader, properties, true));
+        }
+    }
+}
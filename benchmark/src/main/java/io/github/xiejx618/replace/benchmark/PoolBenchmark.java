@@ -0,0 +1,62 @@
+package io.github.xiejx618.replace.benchmark;
+
+import io.github.xiejx618.replace.benchmark.bean.Parser;
+import io.github.xiejx618.replace.benchmark.bean.ParserExt;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 原型替换bean的并发吞吐量: 池化与每次新建对比. 每次操作都是getBean, 使用, destroyBean(池化时归还到池)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class PoolBenchmark {
+    private GenericApplicationContext context;
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.plainParser.class-name", ParserExt.class.getName());
+        properties.put("replace.mappings.pooledParser.class-name", ParserExt.class.getName());
+        properties.put("replace.mappings.pooledParser.pool-size", 64);
+        context = Benchmarks.context(null, properties, true);
+        context.registerBean("plainParser", Parser.class, bd -> bd.setScope(BeanDefinition.SCOPE_PROTOTYPE));
+        context.registerBean("pooledParser", Parser.class, bd -> bd.setScope(BeanDefinition.SCOPE_PROTOTYPE));
+        context.refresh();
+        beanFactory = context.getBeanFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int prototype() {
+        return use("plainParser");
+    }
+
+    @Benchmark
+    public int pooled() {
+        return use("pooledParser");
+    }
+
+    private int use(String beanName) {
+        Parser parser = beanFactory.getBean(beanName, Parser.class);
+        int result = parser.parse((byte) 1);
+        beanFactory.destroyBean(beanName, parser);
+        return result;
+    }
+}
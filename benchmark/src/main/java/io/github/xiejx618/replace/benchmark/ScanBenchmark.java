@@ -0,0 +1,65 @@
+package io.github.xiejx618.replace.benchmark;
+
+import io.github.xiejx618.replace.ReplaceRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扫描包并注册替换信息(ReplaceBeanInitializer从绑定配置到发布注册表的全过程), 不刷新上下文
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int size;
+    @Param({"directory", "jar"})
+    public String layout;
+    @Param({"true", "false"})
+    public boolean preFilter;
+
+    private Path temp;
+    private URLClassLoader classLoader;
+    private Map<String, Object> properties;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        temp = Files.createTempDirectory("replace-scan");
+        Path classes = temp.resolve("classes");
+        String pkg = "bench.p" + size;
+        SyntheticClasses.write(classes, pkg, size);
+        URL url = "jar".equals(layout) ? SyntheticClasses.jar(classes, temp.resolve("classes.jar")).toUri().toURL()
+                : classes.toUri().toURL();
+        classLoader = new URLClassLoader(new URL[]{url}, ScanBenchmark.class.getClassLoader());
+        properties = new HashMap<>();
+        properties.put("replace.packages", pkg);
+        //只测量扫描, 不读取索引
+        properties.put("replace.index-enabled", "false");
+        //每次都重新扫描, 不使用共享的扫描结果
+        properties.put("replace.scan.shared", "false");
+        properties.put("replace.scan.pre-filter", String.valueOf(preFilter));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        classLoader.close();
+        FileSystemUtils.deleteRecursively(temp);
+    }
+
+    @Benchmark
+    public ReplaceRegistry registerFromScan() {
+        return ReplaceRegistry.get(Benchmarks.context(classLoader, properties, true));
+    }
+}
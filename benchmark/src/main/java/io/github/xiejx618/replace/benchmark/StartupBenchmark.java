@@ -0,0 +1,49 @@
+package io.github.xiejx618.replace.benchmark;
+
+import io.github.xiejx618.replace.benchmark.bean.Service;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整个上下文的刷新耗时, 有组件和没有组件对比. 每10个bean替换一个
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StartupBenchmark {
+    @Param({"100", "1000"})
+    public int beans;
+    @Param({"true", "false"})
+    public boolean starter;
+    @Param({"instantiation", "definition"})
+    public String mode;
+
+    private Map<String, Object> properties;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        properties = new HashMap<>();
+        properties.put("replace.mode", mode);
+        for (int i = 0; i < beans; i += 10) {
+            properties.put("replace.mappings.service" + i + ".class-name", Benchmarks.SERVICE_EXT);
+        }
+    }
+
+    @Benchmark
+    public GenericApplicationContext refresh() {
+        GenericApplicationContext context = Benchmarks.context(null, properties, starter);
+        for (int i = 0; i < beans; i++) {
+            context.registerBean("service" + i, Service.class);
+        }
+        context.refresh();
+        context.close();
+        return context;
+    }
+}
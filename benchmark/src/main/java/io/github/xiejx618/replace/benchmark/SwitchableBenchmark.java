@@ -0,0 +1,63 @@
+package io.github.xiejx618.replace.benchmark;
+
+import io.github.xiejx618.replace.benchmark.bean.Service;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可切换方式的调用开销: 原bean直接调用, 委托代理调用原bean和委托代理调用替换类对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwitchableBenchmark {
+    private GenericApplicationContext context;
+    private Service original;
+    private Service switchableOriginal;
+    private Service switchableReplaced;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.switchableOriginal.class-name", Benchmarks.SERVICE_EXT);
+        properties.put("replace.mappings.switchableOriginal.mode", "switchable");
+        properties.put("replace.mappings.switchableReplaced.class-name", Benchmarks.SERVICE_EXT);
+        properties.put("replace.mappings.switchableReplaced.mode", "switchable");
+        properties.put("replace.switch.switchableReplaced", Benchmarks.SERVICE_EXT);
+        context = Benchmarks.context(null, properties, true);
+        context.registerBean("originalService", Service.class);
+        context.registerBean("switchableOriginal", Service.class);
+        context.registerBean("switchableReplaced", Service.class);
+        context.refresh();
+        original = context.getBean("originalService", Service.class);
+        switchableOriginal = context.getBean("switchableOriginal", Service.class);
+        switchableReplaced = context.getBean("switchableReplaced", Service.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String original() {
+        return original.hello();
+    }
+
+    @Benchmark
+    public String switchableOriginal() {
+        return switchableOriginal.hello();
+    }
+
+    @Benchmark
+    public String switchableReplaced() {
+        return switchableReplaced.hello();
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.xiejx618.replace.benchmark;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 生成扫描用的class文件. 每个包有一个父类Base, 每100个类中有一个带@Replace注解的Base子类, 其余为普通类
+ */
+final class SyntheticClasses {
+    private static final String REPLACE = "Lio/github/xiejx618/replace/Replace;";
+    private static final String OBJECT = "java/lang/Object";
+
+    private SyntheticClasses() {
+    }
+
+    /**
+     * 在目录下生成包的class文件
+     *
+     * @param dir  classes目录
+     * @param pkg  包名
+     * @param size 类数量
+     */
+    static void write(Path dir, String pkg, int size) throws IOException {
+        String pkgPath = ClassUtils.convertClassNameToResourcePath(pkg) + "/";
+        Path pkgDir = Files.createDirectories(dir.resolve(pkgPath));
+        String base = pkgPath + "Base";
+        Files.write(pkgDir.resolve("Base.class"), generate(base, OBJECT, null));
+        for (int i = 1; i < size; i++) {
+            boolean replace = i % 100 == 1;
+            String name = (replace ? "Ext" : "Plain") + i;
+            Files.write(pkgDir.resolve(name + ".class"),
+                    generate(pkgPath + name, replace ? base : OBJECT, replace ? "bean" + i : null));
+        }
+    }
+
+    /**
+     * 把目录打包为jar
+     *
+     * @param dir classes目录
+     * @param jar jar文件
+     * @return jar文件
+     */
+    static Path jar(Path dir, Path jar) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            files = stream.filter(file -> !file.equals(dir)).sorted().collect(Collectors.toList());
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Path file : files) {
+                String name = dir.relativize(file).toString().replace('\\', '/');
+                //包括目录条目, 否则ClassLoader.getResources找不到包路径
+                boolean directory = Files.isDirectory(file);
+                out.putNextEntry(new JarEntry(directory ? name + "/" : name));
+                if (!directory) {
+                    Files.copy(file, out);
+                }
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * 生成一个类: 一个字段, 默认构造函数和一个getter
+     *
+     * @param internalName 类的内部名称
+     * @param superName    父类的内部名称
+     * @param beanName     不为null时添加@Replace(beanName)
+     */
+    private static byte[] generate(String internalName, String superName, String beanName) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, superName, null);
+        if (beanName != null) {
+            AnnotationVisitor av = cw.visitAnnotation(REPLACE, true);
+            av.visit("value", beanName);
+            av.visitEnd();
+        }
+        cw.visitField(Opcodes.ACC_PRIVATE, "value", "Ljava/lang/String;", null, null).visitEnd();
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "getValue", "()Ljava/lang/String;", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, internalName, "value", "Ljava/lang/String;");
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+}
@@ -0,0 +1,14 @@
+package io.github.xiejx618.replace.benchmark.bean;
+
+/**
+ * 构造开销大的原型bean: 每个实例分配一个缓冲区
+ */
+public class Parser {
+    protected final byte[] buffer = new byte[64 * 1024];
+    protected int position;
+
+    public int parse(byte value) {
+        buffer[position++ % buffer.length] = value;
+        return position;
+    }
+}
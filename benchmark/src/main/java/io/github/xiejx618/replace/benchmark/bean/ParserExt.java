@@ -0,0 +1,13 @@
+package io.github.xiejx618.replace.benchmark.bean;
+
+import io.github.xiejx618.replace.ReplacePoolable;
+
+/**
+ * Parser的替换类, 归还到池时重置读取位置
+ */
+public class ParserExt extends Parser implements ReplacePoolable {
+    @Override
+    public void resetForReuse() {
+        position = 0;
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.xiejx618.replace.benchmark.bean;
+
+/**
+ * 被替换的bean
+ */
+public class Service {
+    public String hello() {
+        return "hello";
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.xiejx618.replace.benchmark.bean;
+
+/**
+ * 装饰方式的替换类, 包装原bean
+ */
+public class ServiceDecorator extends Service {
+    private final Service delegate;
+
+    public ServiceDecorator(Service delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String hello() {
+        return delegate.hello() + " decorated";
+    }
+}
@@ -0,0 +1,11 @@
+package io.github.xiejx618.replace.benchmark.bean;
+
+/**
+ * 替换类, 通过replace.mappings配置替换, 不需要扫描
+ */
+public class ServiceExt extends Service {
+    @Override
+    public String hello() {
+        return "hello ext";
+    }
+}
@@ -19,6 +19,15 @@ tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
 }
 
+//编译自身时不执行注解处理器
+tasks.compileJava {
+    options.compilerArgs.add("-proc:none")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
 tasks.withType<Javadoc> {
     options.encoding = "UTF-8"
     (options as? CoreJavadocOptions)?.addStringOption("Xdoclint:none", "-quiet")
@@ -33,6 +42,15 @@ repositories {
 dependencies {
     implementation(platform("org.springframework.boot:spring-boot-dependencies:2.7.18"))
     implementation("org.springframework.boot:spring-boot-starter")
+    compileOnly("io.micrometer:micrometer-core")
+    compileOnly("org.springframework.boot:spring-boot-actuator-autoconfigure")
+    compileOnly("org.springframework:spring-test")
+    testImplementation("org.springframework.boot:spring-boot-starter-test")
+    //可选依赖在测试中使用
+    testImplementation("io.micrometer:micrometer-core")
+    testImplementation("org.springframework.boot:spring-boot-actuator-autoconfigure")
+    //测试代码使用ReplaceIndexProcessor生成替换索引
+    testAnnotationProcessor(sourceSets.main.get().output)
 }
 
 
@@ -59,4 +59,71 @@ public @interface Replace {
      * }</pre>
      */
     String instantiateMethod() default "";
+
+    /**
+     * 替换方式, 默认为子类替换
+     *
+     * @return 替换方式
+     */
+    Mode mode() default Mode.SUBCLASS;
+
+    /**
+     * 是否按类型替换. 为true时忽略value, 替换所有类型为父类的bean(包括@Bean方法定义的和自定义名称的bean).
+     * 所有bean定义注册完后, 一次性建立类型到beanName的索引并匹配, 不会对每个替换单独按类型查找.
+     * 只匹配类型与父类完全相同的bean, 不匹配父类的子类; 不匹配FactoryBean.
+     *
+     * @return 是否按类型替换
+     */
+    boolean byType() default false;
+
+    /**
+     * 生效的profile, 支持profile表达式(如"!prod", "dev &amp; local"), 任意一个匹配即生效. 不指定时不限制
+     *
+     * @return profile
+     */
+    String[] profiles() default {};
+
+    /**
+     * 生效需要的配置, 格式为"name=value"(配置值等于value)或"name"(配置存在且不为false), 全部满足才生效. 不指定时不限制
+     *
+     * @return 配置条件
+     */
+    String[] onProperty() default {};
+
+    /**
+     * 生效需要存在的类名, 全部存在才生效. 只检查class文件是否存在, 不加载类. 不指定时不限制
+     *
+     * @return 类名
+     */
+    String[] onClass() default {};
+
+    /**
+     * 池化的实例数, 大于0时启用池化: 原型bean通过ConfigurableBeanFactory#destroyBean销毁时, 实例被重置({@link ReplacePoolable})
+     * 后放回无锁的固定大小池中, 之后getBean优先从池中取, 池为空时才新建. 适用于构造开销大的原型bean(如缓冲区,解析器).
+     * 只支持子类替换方式. 有其它销毁回调(@PreDestroy, DisposableBean, AutoCloseable, destroy-method)的实例不放回池中;
+     * 取出的实例会重新执行依赖注入和初始化回调. 池不预先填充, 只有销毁归还的实例才会被复用
+     *
+     * @return 池大小, 默认0不池化
+     */
+    int poolSize() default 0;
+
+    /**
+     * 替换方式
+     */
+    enum Mode {
+        /**
+         * 使用替换类(需继承原bean的类)实例化bean, 不再创建原bean
+         */
+        SUBCLASS,
+        /**
+         * 原bean正常创建和初始化后, 使用替换类包装原bean. 替换类构造函数的第一个参数为原bean, 其余参数与子类替换一样解析.
+         * 替换类由用户编写, 调用原bean只多一次方法调用; 没有覆盖的public方法通过生成的子类转发到原bean. 不支持instantiateMethod
+         */
+        DECORATOR,
+        /**
+         * 容器中的bean为生成的委托代理, 可以在运行时通过{@link ReplaceSwitcher}或配置replace.switch.beanName在原bean和
+         * 所有可切换方式的替换类之间切换, 不需要重启. 只委托public方法, 只支持单例bean; 不支持instantiateMethod
+         */
+        SWITCHABLE
+    }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+
+/**
+ * 在实例化开始前一次性修改替换bean的定义(设置instanceSupplier), 不再为每个bean的实例化做拦截.
+ * <p>
+ * 通过{@link ConfigurableApplicationContext#addBeanFactoryPostProcessor}注册的后置处理器会早于
+ * ConfigurationClassPostProcessor执行, 这时@Bean等定义还没注册, 所以修改放在{@link #postProcessBeanFactory}:
+ * 它在所有BeanDefinitionRegistryPostProcessor注册完定义之后才执行.
+ */
+public class ReplaceBeanDefinitionRegistryPostProcessor implements BeanDefinitionRegistryPostProcessor {
+    private static final String SCOPED_PROXY_FACTORY_BEAN = "org.springframework.aop.scope.ScopedProxyFactoryBean";
+
+    private final ConfigurableApplicationContext applicationContext;
+    private final ReplaceRegistry registry;
+
+    public ReplaceBeanDefinitionRegistryPostProcessor(ConfigurableApplicationContext applicationContext,
+                                                      ReplaceRegistry registry) {
+        this.applicationContext = applicationContext;
+        this.registry = registry;
+    }
+
+    @Override
+    public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+        //这时还没有注册完所有定义, 不处理
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        for (Map.Entry<String, ReplaceInfo> entry : registry.getReplaceMap().entrySet()) {
+            //装饰方式和可切换方式由ReplaceWrappingPostProcessor处理
+            if (entry.getValue().getMode() != Replace.Mode.SUBCLASS) {
+                continue;
+            }
+            //如果bean经过了scope代理,就修改scope代理的目标bean定义
+            String beanName = ScopedProxyUtils.getTargetBeanName(entry.getKey());
+            if (!beanFactory.containsBeanDefinition(beanName)) {
+                beanName = entry.getKey();
+                if (!beanFactory.containsBeanDefinition(beanName)) {
+                    continue;
+                }
+            }
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            //排除ScopedProxyFactoryBean替换
+            if (SCOPED_PROXY_FACTORY_BEAN.equals(beanDefinition.getBeanClassName())) {
+                continue;
+            }
+            Assert.isTrue(beanDefinition instanceof AbstractBeanDefinition, beanDefinition.getClass() + "不是AbstractBeanDefinition");
+            //已缓存的MergedBeanDefinition会在所有BeanFactoryPostProcessor执行完后由Spring统一清除
+            ((AbstractBeanDefinition) beanDefinition).setInstanceSupplier(
+                    new ReplaceInstanceSupplier(beanName, entry.getValue(), applicationContext));
+        }
+    }
+}
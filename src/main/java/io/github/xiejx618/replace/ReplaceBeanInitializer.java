@@ -8,17 +8,17 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.ansi.AnsiColor;
 import org.springframework.boot.ansi.AnsiOutput;
 import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.env.ConfigurableEnvironment;
-import org.springframework.core.env.Environment;
 import org.springframework.core.env.MutablePropertySources;
-import org.springframework.util.ClassUtils;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 监听Spring应用上下文初始化事件
@@ -27,41 +27,94 @@ public class ReplaceBeanInitializer implements ApplicationContextInitializer<Con
     private static final Logger logger = LoggerFactory.getLogger(ReplaceBeanInitializer.class);
     private static final String PACKAGES = "replace.packages";
 
-    private static final String BOOTSTRAP_ENABLED_PROPERTY = "spring.cloud.bootstrap.enabled";
-    private static final String MARKER_CLASS = "org.springframework.cloud.bootstrap.marker.Marker";
-    private static final String USE_LEGACY_PROCESSING_PROPERTY = "spring.config.use-legacy-processing";
-    private static final AtomicInteger TIMES = new AtomicInteger(0);//进来次数
+    //Spring Cloud的bootstrap上下文特有的配置源名称(BootstrapApplicationListener.BOOTSTRAP_PROPERTY_SOURCE_NAME)
+    private static final String BOOTSTRAP_PROPERTY_SOURCE_NAME = "bootstrap";
+    //Spring Cloud刷新配置时创建的临时上下文特有的配置源名称(ContextRefresher.REFRESH_ARGS_PROPERTY_SOURCE)
+    private static final String REFRESH_ARGS_PROPERTY_SOURCE_NAME = "refreshArgs";
 
     @Override
     public void initialize(ConfigurableApplicationContext context) {
         ConfigurableEnvironment environment = context.getEnvironment();
-        //如果启用了bootstrap,就只有第二次进来才处理,第一次和后面再进来都不处理. 主要为了拦住第一次,拿不到application.yaml
-        //没启用bootstrap,就只有第一次进来才处理,后面再进来都不处理
-        if (bootstrapEnabled(environment)) {
-            if (TIMES.incrementAndGet() != 2) {
-                return;
-            }
-        } else {
-            if (TIMES.incrementAndGet() != 1) {
-                return;
-            }
+        //只处理应用的主上下文: bootstrap上下文拿不到application.yaml, 刷新配置的临时上下文和已处理上下文的子上下文都不处理;
+        //同一个上下文只处理一次. 按上下文判断, 同一个JVM中并行创建的多个主上下文(如测试)各自处理
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        if (isAuxiliaryContext(context) || beanFactory.containsSingleton(ReplaceRegistry.BEAN_NAME)) {
+            return;
         }
         //1.获取替换Bean配置. 默认值不启用bean替换功能
+        ApplicationStartup applicationStartup = context.getApplicationStartup();
+        StartupStep bindStep = applicationStartup.start("replace.properties.bind");
         ReplaceProperties replaceProperties = Binder.get(environment)
                 .bind("replace", ReplaceProperties.class)
                 .orElse(new ReplaceProperties());
+        bindStep.end();
         if (!replaceProperties.isEnabled()) {
             return;
         }
-        //2.获取包名和替换Bean配置, 注册替换Bean到ReplaceBeanPostProcessor;
+        //2.获取包名和替换Bean配置, 注册替换Bean到当前上下文的ReplaceRegistry, 扫描完后发布快照;
         List<String> packages = optimizeConfig(environment.getPropertySources());
-        ReplaceBeanPostProcessor.registerFromScan(context, packages);
+        ReplaceRegistry registry = new ReplaceRegistry();
+        StartupStep scanStep = applicationStartup.start("replace.scan").tag("packages", packages.toString());
+        long start = System.nanoTime();
+        ReplaceScanner scanner = new ReplaceScanner(context, replaceProperties);
+        List<ReplaceCandidate> candidates = scanner.scan(packages);
+        registry.scanned(scanner.getResourceCount(), scanner.getParsedCount(), System.nanoTime() - start);
+        scanStep.tag("candidates", String.valueOf(candidates.size())).end();
+        StartupStep registerStep = applicationStartup.start("replace.register");
+        //配置的替换先注册, 排序值相同时配置优先
+        replaceProperties.getMappings().forEach((beanName, mapping) ->
+                registry.register(ReplaceCandidate.of(beanName, mapping), context));
+        for (ReplaceCandidate candidate : candidates) {
+            registry.register(candidate, context);
+        }
+        registry.publish();
+        registerStep.tag("replacements", String.valueOf(registry.getReplaceMap().size())).end();
+        beanFactory.registerSingleton(ReplaceRegistry.BEAN_NAME, registry);
 
         //3.打印替换配置.可以在此之前, 考虑提供移除配置
-        logger.info(AnsiOutput.toString(AnsiColor.GREEN, ReplaceBeanPostProcessor.replaceMapToString(true)));
-        //4.将ReplaceBeanPostProcessor添加到Spring容器;
-        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
-        ReplaceBeanPostProcessor replaceBeanPostProcessor = new ReplaceBeanPostProcessor(context);
+        logger.info(AnsiOutput.toString(AnsiColor.GREEN, registry.replaceMapToString(true)));
+        //启动时校验: 所有bean定义注册完后(@PropertySource已加载)提前解析实例化计划并检查依赖
+        if (replaceProperties.isFailFast()) {
+            context.addBeanFactoryPostProcessor(new ReplaceValidator(context, registry));
+        }
+        //启动完成后预热懒加载的替换bean. 只按bean名称注册为监听器, 排在ApplicationAvailabilityBean之后, 见ReplaceWarmUp
+        if (replaceProperties.getWarmUp().isEnabled()) {
+            beanFactory.registerSingleton(ReplaceWarmUp.BEAN_NAME,
+                    new ReplaceWarmUp(context, registry, replaceProperties.getWarmUp()));
+        }
+        //有按类型替换时, 所有bean定义注册完后匹配beanName, 需要先于DEFINITION方式的后置处理器注册
+        List<ReplaceCandidate> typeCandidates = registry.getTypeCandidates();
+        if (!typeCandidates.isEmpty()) {
+            context.addBeanFactoryPostProcessor(new ReplaceTypeResolver(context, registry));
+        }
+        //有装饰方式或可切换方式的替换时, 添加包装原bean的后置处理器
+        Set<Replace.Mode> modes = new HashSet<>();
+        registry.getReplaceMap().values().forEach(info -> modes.add(info.getMode()));
+        typeCandidates.forEach(candidate -> modes.add(candidate.getMode()));
+        if (modes.contains(Replace.Mode.DECORATOR) || modes.contains(Replace.Mode.SWITCHABLE)) {
+            ReplaceSwitcher switcher = null;
+            if (modes.contains(Replace.Mode.SWITCHABLE)) {
+                switcher = new ReplaceSwitcher(context, registry);
+                beanFactory.registerSingleton(ReplaceSwitcher.BEAN_NAME, switcher);
+                context.addApplicationListener(switcher);
+            }
+            beanFactory.addBeanPostProcessor(new ReplaceWrappingPostProcessor(context, registry, switcher));
+        }
+        //有池化的替换时, 添加销毁原型bean时归还实例的后置处理器
+        Set<String> pooledClasses = new HashSet<>();
+        registry.getReplaceMap().values().stream().filter(info -> info.getPool() != null)
+                .forEach(info -> pooledClasses.add(info.getClazz()));
+        typeCandidates.stream().filter(candidate -> candidate.getPoolSize() > 0)
+                .forEach(candidate -> pooledClasses.add(candidate.getClassName()));
+        if (!pooledClasses.isEmpty()) {
+            beanFactory.addBeanPostProcessor(new ReplacePoolPostProcessor(beanFactory, registry, pooledClasses));
+        }
+        //4.将ReplaceBeanPostProcessor添加到Spring容器; DEFINITION方式只在刷新时修改一次bean定义
+        if (replaceProperties.getMode() == ReplaceProperties.Mode.DEFINITION) {
+            context.addBeanFactoryPostProcessor(new ReplaceBeanDefinitionRegistryPostProcessor(context, registry));
+            return;
+        }
+        ReplaceBeanPostProcessor replaceBeanPostProcessor = new ReplaceBeanPostProcessor(context, registry);
         beanFactory.addBeanPostProcessor(replaceBeanPostProcessor);
         BeanFactory parentBeanFactory = beanFactory.getParentBeanFactory();
         if (parentBeanFactory instanceof ConfigurableBeanFactory) {
@@ -71,12 +124,17 @@ public class ReplaceBeanInitializer implements ApplicationContextInitializer<Con
     }
 
     /**
-     * 是否启用bootstrap
+     * 是否辅助上下文: Spring Cloud的bootstrap上下文, ContextRefresher刷新配置时创建的临时上下文,
+     * 或者父上下文已经处理过的子上下文(替换只在父上下文中生效一次, 不再注册第二套后置处理器)
      */
-    private static boolean bootstrapEnabled(Environment environment) {
-        return environment.getProperty(BOOTSTRAP_ENABLED_PROPERTY, Boolean.class, false)
-                || ClassUtils.isPresent(MARKER_CLASS, null)
-                || environment.getProperty(USE_LEGACY_PROCESSING_PROPERTY, Boolean.class, false);
+    private static boolean isAuxiliaryContext(ConfigurableApplicationContext context) {
+        MutablePropertySources propertySources = context.getEnvironment().getPropertySources();
+        if (propertySources.contains(BOOTSTRAP_PROPERTY_SOURCE_NAME)
+                || propertySources.contains(REFRESH_ARGS_PROPERTY_SOURCE_NAME)) {
+            return true;
+        }
+        ApplicationContext parent = context.getParent();
+        return parent != null && parent.containsBean(ReplaceRegistry.BEAN_NAME);
     }
 
     /**
@@ -0,0 +1,180 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Profiles;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+import java.beans.Introspector;
+import java.util.Map;
+
+/**
+ * 扫描或索引得到的@Replace候选类, 只包含字符串和基本类型, 不会加载替换类
+ */
+final class ReplaceCandidate {
+    //替换类名
+    private final String className;
+    //父类类名
+    private final String superClassName;
+    //bean名称
+    private final String beanName;
+    //顺序
+    private final int order;
+    //静态实例化方法名
+    private final String instantiateMethod;
+    //替换方式
+    private final Replace.Mode mode;
+    //是否按类型替换
+    private final boolean byType;
+    //生效条件
+    private final String[] profiles;
+    private final String[] onProperty;
+    private final String[] onClass;
+    //池化的实例数
+    private final int poolSize;
+
+    ReplaceCandidate(String className, String superClassName, String value, int order, String instantiateMethod,
+                     Replace.Mode mode, boolean byType, String[] profiles, String[] onProperty, String[] onClass,
+                     int poolSize) {
+        Assert.isTrue(StringUtils.hasText(value) || StringUtils.hasText(superClassName), "替换bean的类不能没有父类");
+        this.className = className;
+        this.superClassName = superClassName;
+        this.beanName = deduceBeanName(value, superClassName);
+        this.order = order;
+        this.instantiateMethod = instantiateMethod != null ? instantiateMethod : "";
+        this.mode = mode != null ? mode : Replace.Mode.SUBCLASS;
+        Assert.isTrue(!byType || StringUtils.hasText(superClassName), "按类型替换的类不能没有父类");
+        this.byType = byType;
+        this.profiles = profiles != null ? profiles : new String[0];
+        this.onProperty = onProperty != null ? onProperty : new String[0];
+        this.onClass = onClass != null ? onClass : new String[0];
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * 从类的注解元数据创建候选类
+     *
+     * @param metadata 注解元数据
+     * @return 没有@Replace注解或为接口(包括组合注解本身)时返回null
+     */
+    static ReplaceCandidate of(AnnotationMetadata metadata) {
+        if (metadata.isInterface()) {
+            return null;
+        }
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(Replace.class.getName());
+        if (attributes == null) {
+            return null;
+        }
+        return new ReplaceCandidate(metadata.getClassName(), metadata.getSuperClassName(),
+                (String) attributes.get("value"), (int) attributes.get("order"),
+                (String) attributes.get("instantiateMethod"), Replace.Mode.valueOf(String.valueOf(attributes.get("mode"))),
+                (boolean) attributes.get("byType"), (String[]) attributes.get("profiles"),
+                (String[]) attributes.get("onProperty"), (String[]) attributes.get("onClass"),
+                (int) attributes.get("poolSize"));
+    }
+
+    /**
+     * 从replace.mappings配置创建候选类, beanName由配置指定, 不需要父类.
+     * 配置了bean-name时使用bean-name, 否则使用key
+     *
+     * @param key      配置的key
+     * @param mapping  替换配置
+     * @return 替换候选类
+     */
+    static ReplaceCandidate of(String key, ReplaceProperties.Mapping mapping) {
+        Assert.hasText(mapping.getClassName(), "replace.mappings." + key + ".class-name不能为空");
+        String beanName = StringUtils.hasText(mapping.getBeanName()) ? mapping.getBeanName().trim() : key;
+        return new ReplaceCandidate(mapping.getClassName(), null, beanName, mapping.getOrder(),
+                mapping.getInstantiateMethod(), mapping.getMode(), false,
+                StringUtils.toStringArray(mapping.getProfiles()), StringUtils.toStringArray(mapping.getOnProperty()),
+                StringUtils.toStringArray(mapping.getOnClass()), mapping.getPoolSize());
+    }
+
+    /**
+     * 生效条件是否满足. 只使用配置和classpath资源判断, 不加载替换类和条件中的类
+     *
+     * @param context ConfigurableApplicationContext
+     * @return 是否满足
+     */
+    boolean matches(ConfigurableApplicationContext context) {
+        ConfigurableEnvironment environment = context.getEnvironment();
+        if (!ObjectUtils.isEmpty(profiles) && !environment.acceptsProfiles(Profiles.of(profiles))) {
+            return false;
+        }
+        for (String property : onProperty) {
+            int index = property.indexOf('=');
+            String value = environment.getProperty((index < 0 ? property : property.substring(0, index)).trim());
+            if (index < 0 ? value == null || "false".equalsIgnoreCase(value)
+                    : !property.substring(index + 1).trim().equals(value)) {
+                return false;
+            }
+        }
+        ClassLoader classLoader = context.getClassLoader() != null ? context.getClassLoader() : ClassUtils.getDefaultClassLoader();
+        for (String name : onClass) {
+            if (classLoader == null || classLoader.getResource(ClassUtils.convertClassNameToResourcePath(name.trim())
+                    + ClassUtils.CLASS_FILE_SUFFIX) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 优先从注解获取beanName;获取不到时,再从父类类名推断
+     *
+     * @param value          注解指定的bean名称
+     * @param superClassName 父类类名
+     * @return bean名称
+     */
+    private static String deduceBeanName(String value, String superClassName) {
+        return StringUtils.hasText(value) ? value : Introspector.decapitalize(ClassUtils.getShortName(superClassName));
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public String getInstantiateMethod() {
+        return instantiateMethod;
+    }
+
+    public Replace.Mode getMode() {
+        return mode;
+    }
+
+    public boolean isByType() {
+        return byType;
+    }
+
+    public String[] getProfiles() {
+        return profiles;
+    }
+
+    public String[] getOnProperty() {
+        return onProperty;
+    }
+
+    public String[] getOnClass() {
+        return onClass;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 扫描前的快速过滤: 不用ASM完整解析类元数据, 只读取class文件的常量池和类上的运行时注解, 排除肯定没有标注@Replace的类.
+ * <ul>
+ * <li>常量池中有@Replace的类型描述符时, 可能直接标注了@Replace, 需要完整解析.</li>
+ * <li>否则检查类上的运行时注解(RuntimeVisibleAnnotations): 有不能排除的注解时, 可能是通过组合注解间接标注了@Replace,
+ * 也需要完整解析. JDK, Jakarta, Kotlin和Spring自身的注解不会标注@Replace, 可以排除.</li>
+ * <li>类上没有其它运行时注解的才跳过.</li>
+ * </ul>
+ * 只读取字段和方法的属性长度以跳过它们, 不解析字段和方法.
+ */
+final class ReplaceClassFilter {
+    //@Replace的类型描述符, 都是ASCII字符, 和常量池的Modified UTF-8编码一致
+    private static final byte[] DESCRIPTOR = ascii("L" + Replace.class.getName().replace('.', '/') + ";");
+    private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = ascii("RuntimeVisibleAnnotations");
+    //不会标注@Replace的注解类型描述符前缀
+    private static final byte[][] EXCLUDED_PREFIXES = {ascii("Ljava/"), ascii("Ljavax/"), ascii("Ljakarta/"),
+            ascii("Lkotlin/"), ascii("Lorg/springframework/")};
+    private static final int MAGIC = 0xCAFEBABE;
+    //过滤规则的版本, 规则变化时递增, 之前按旧规则生成的磁盘扫描缓存不再使用
+    static final int VERSION = 2;
+
+    private ReplaceClassFilter() {
+    }
+
+    /**
+     * 类是否可能直接或通过组合注解标注了@Replace. 无法识别的class文件格式都返回true, 交给完整解析处理
+     *
+     * @param resource class文件
+     * @return 是否可能标注了@Replace
+     * @throws IOException 读取失败
+     */
+    static boolean mayReplace(Resource resource) throws IOException {
+        byte[] bytes;
+        try (InputStream in = resource.getInputStream()) {
+            bytes = StreamUtils.copyToByteArray(in);
+        }
+        try {
+            return mayReplace(bytes);
+        } catch (IndexOutOfBoundsException e) {
+            return true;
+        }
+    }
+
+    static boolean mayReplace(byte[] bytes) {
+        if (bytes.length < 10 || readInt(bytes, 0) != MAGIC) {
+            return true;
+        }
+        int count = readUnsignedShort(bytes, 8);
+        //常量池中Utf8项的偏移(指向长度), 其它项为0
+        int[] utf8 = new int[count];
+        int offset = 10;
+        for (int i = 1; i < count; i++) {
+            int tag = bytes[offset++] & 0xFF;
+            switch (tag) {
+                case 1: //Utf8
+                    utf8[i] = offset;
+                    if (equalsUtf8(bytes, offset, DESCRIPTOR)) {
+                        return true;
+                    }
+                    offset += 2 + readUnsignedShort(bytes, offset);
+                    break;
+                case 7: //Class
+                case 8: //String
+                case 16: //MethodType
+                case 19: //Module
+                case 20: //Package
+                    offset += 2;
+                    break;
+                case 15: //MethodHandle
+                    offset += 3;
+                    break;
+                case 3: //Integer
+                case 4: //Float
+                case 9: //Fieldref
+                case 10: //Methodref
+                case 11: //InterfaceMethodref
+                case 12: //NameAndType
+                case 17: //Dynamic
+                case 18: //InvokeDynamic
+                    offset += 4;
+                    break;
+                case 5: //Long
+                case 6: //Double, 占两个常量池位置
+                    offset += 8;
+                    i++;
+                    break;
+                default:
+                    return true;
+            }
+        }
+        //access_flags, this_class, super_class
+        offset += 6;
+        offset += 2 + 2 * readUnsignedShort(bytes, offset);
+        //字段和方法
+        for (int member = 0; member < 2; member++) {
+            int members = readUnsignedShort(bytes, offset);
+            offset += 2;
+            for (int i = 0; i < members; i++) {
+                offset = skipAttributes(bytes, offset + 6);
+            }
+        }
+        int attributes = readUnsignedShort(bytes, offset);
+        offset += 2;
+        for (int i = 0; i < attributes; i++) {
+            int name = utf8[readUnsignedShort(bytes, offset)];
+            int length = readInt(bytes, offset + 2);
+            offset += 6;
+            if (name != 0 && equalsUtf8(bytes, name, RUNTIME_VISIBLE_ANNOTATIONS)) {
+                int annotations = readUnsignedShort(bytes, offset);
+                int position = offset + 2;
+                for (int j = 0; j < annotations; j++) {
+                    int type = utf8[readUnsignedShort(bytes, position)];
+                    if (type == 0 || !isExcluded(bytes, type)) {
+                        return true;
+                    }
+                    position = skipAnnotation(bytes, position);
+                }
+            }
+            offset += length;
+        }
+        return false;
+    }
+
+    /**
+     * 跳过attributes_count和所有属性
+     */
+    private static int skipAttributes(byte[] bytes, int offset) {
+        int attributes = readUnsignedShort(bytes, offset);
+        offset += 2;
+        for (int i = 0; i < attributes; i++) {
+            offset += 6 + readInt(bytes, offset + 2);
+        }
+        return offset;
+    }
+
+    /**
+     * 跳过一个annotation结构: type_index, num_element_value_pairs, element_value_pairs
+     */
+    private static int skipAnnotation(byte[] bytes, int offset) {
+        int pairs = readUnsignedShort(bytes, offset + 2);
+        offset += 4;
+        for (int i = 0; i < pairs; i++) {
+            offset = skipElementValue(bytes, offset + 2);
+        }
+        return offset;
+    }
+
+    private static int skipElementValue(byte[] bytes, int offset) {
+        char tag = (char) (bytes[offset] & 0xFF);
+        offset++;
+        switch (tag) {
+            case 'e': //枚举: type_name_index, const_name_index
+                return offset + 4;
+            case '@':
+                return skipAnnotation(bytes, offset);
+            case '[':
+                int values = readUnsignedShort(bytes, offset);
+                offset += 2;
+                for (int i = 0; i < values; i++) {
+                    offset = skipElementValue(bytes, offset);
+                }
+                return offset;
+            default: //常量和Class: 一个常量池索引
+                return offset + 2;
+        }
+    }
+
+    private static boolean isExcluded(byte[] bytes, int utf8) {
+        int length = readUnsignedShort(bytes, utf8);
+        for (byte[] prefix : EXCLUDED_PREFIXES) {
+            if (length >= prefix.length && regionMatches(bytes, utf8 + 2, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalsUtf8(byte[] bytes, int utf8, byte[] expected) {
+        return readUnsignedShort(bytes, utf8) == expected.length && regionMatches(bytes, utf8 + 2, expected);
+    }
+
+    private static boolean regionMatches(byte[] bytes, int offset, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readUnsignedShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
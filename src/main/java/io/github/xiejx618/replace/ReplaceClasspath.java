@@ -0,0 +1,90 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.util.PatternMatchUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+/**
+ * 从类加载器的URL获取classpath根路径, 只按文件名过滤jar, 不打开jar.
+ * classpath*:会让类加载器逐个打开所有jar查找包路径, 第三方jar很多时开销较大.
+ * <p>
+ * 根路径的格式与资源URL一致: 目录为file:/dir/, jar为jar:file:/x.jar!/, Spring Boot fat jar中的jar为jar:file:/app.jar!/BOOT-INF/lib/x.jar!/
+ */
+final class ReplaceClasspath {
+    private ReplaceClasspath() {
+    }
+
+    /**
+     * 获取classpath根路径. 与类加载器查找资源的顺序一致, 父加载器在前
+     *
+     * @param classLoader 类加载器
+     * @param jars        jar文件名模式, 支持*通配符
+     * @return 目录和匹配的jar
+     */
+    static List<String> roots(ClassLoader classLoader, List<String> jars) {
+        Set<String> roots = new LinkedHashSet<>();
+        addRoots(classLoader, roots);
+        String[] patterns = StringUtils.toStringArray(jars);
+        List<String> result = new ArrayList<>(roots.size());
+        for (String root : roots) {
+            String name = jarName(root);
+            //目录(包括fat jar中的BOOT-INF/classes)总是扫描
+            if (!name.endsWith(ResourceUtils.JAR_FILE_EXTENSION) || PatternMatchUtils.simpleMatch(patterns, name)) {
+                result.add(root);
+            }
+        }
+        return result;
+    }
+
+    private static void addRoots(ClassLoader classLoader, Set<String> roots) {
+        if (classLoader == null) {
+            return;
+        }
+        addRoots(classLoader.getParent(), roots);
+        if (classLoader instanceof URLClassLoader) {
+            for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+                addRoot(url, roots);
+            }
+        } else if (classLoader == ClassLoader.getSystemClassLoader()) {
+            //JDK9+的系统类加载器不是URLClassLoader, 从java.class.path获取
+            for (String path : StringUtils.delimitedListToStringArray(System.getProperty("java.class.path"), File.pathSeparator)) {
+                if (StringUtils.hasText(path)) {
+                    try {
+                        addRoot(new File(path).toURI().toURL(), roots);
+                    } catch (MalformedURLException e) {
+                        //忽略无效路径
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addRoot(URL url, Set<String> roots) {
+        String root = url.toString();
+        if (root.startsWith(ResourceUtils.JAR_URL_PREFIX)) {
+            //fat jar中的jar或目录
+            roots.add(root.endsWith("/") ? root : root + ResourceUtils.JAR_URL_SEPARATOR);
+        } else if (root.endsWith("/")) {
+            roots.add(root);
+        } else if (root.endsWith(ResourceUtils.JAR_FILE_EXTENSION)) {
+            roots.add(ResourceUtils.JAR_URL_PREFIX + root + ResourceUtils.JAR_URL_SEPARATOR);
+        }
+    }
+
+    /**
+     * 根路径的文件名, jar为jar文件名, 目录为最后一级目录名
+     */
+    private static String jarName(String root) {
+        String path = StringUtils.trimTrailingCharacter(root, '/');
+        if (path.endsWith("!")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return StringUtils.getFilename(path);
+    }
+}
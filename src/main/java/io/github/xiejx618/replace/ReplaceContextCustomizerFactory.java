@@ -0,0 +1,62 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfigurationAttributes;
+import org.springframework.test.context.ContextCustomizer;
+import org.springframework.test.context.ContextCustomizerFactory;
+import org.springframework.test.context.MergedContextConfiguration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 让Spring测试上下文缓存的key包含替换配置. 测试类的配置(@TestPropertySource, properties等)本来就在key中,
+ * 但系统属性和环境变量中的replace配置不在, 修改后会错误地复用之前缓存的上下文.
+ * 这里在创建测试上下文时记录系统属性(replace.*)和环境变量(REPLACE_*), 配置不同时不复用上下文.
+ * <p>
+ * 替换的扫描结果由{@link ReplaceScanner}按类加载器共享, 缓存的多个测试上下文不会重复扫描.
+ */
+public class ReplaceContextCustomizerFactory implements ContextCustomizerFactory {
+
+    @Override
+    public ContextCustomizer createContextCustomizer(Class<?> testClass, List<ContextConfigurationAttributes> configAttributes) {
+        Map<String, String> properties = new TreeMap<>();
+        System.getProperties().forEach((key, value) -> {
+            if (key instanceof String && ((String) key).startsWith("replace.")) {
+                properties.put((String) key, String.valueOf(value));
+            }
+        });
+        System.getenv().forEach((key, value) -> {
+            if (key.startsWith("REPLACE_")) {
+                properties.put(key, value);
+            }
+        });
+        return new ReplaceContextCustomizer(properties);
+    }
+
+    /**
+     * 只作为测试上下文缓存的key, 不修改上下文(替换由ReplaceBeanInitializer处理)
+     */
+    private static final class ReplaceContextCustomizer implements ContextCustomizer {
+        private final Map<String, String> properties;
+
+        private ReplaceContextCustomizer(Map<String, String> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public void customizeContext(ConfigurableApplicationContext context, MergedContextConfiguration mergedConfig) {
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof ReplaceContextCustomizer && properties.equals(((ReplaceContextCustomizer) o).properties));
+        }
+
+        @Override
+        public int hashCode() {
+            return properties.hashCode();
+        }
+    }
+}
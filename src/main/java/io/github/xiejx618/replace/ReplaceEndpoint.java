@@ -0,0 +1,307 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 替换bean的actuator端点(replace), 查看每个替换的生效情况和实例化耗时.
+ * 有可切换方式的替换时, 可以通过POST /actuator/replace/{beanName}, 请求体{"className":"..."}切换实现
+ */
+@Endpoint(id = "replace")
+public class ReplaceEndpoint {
+    private final ReplaceRegistry registry;
+    //没有启用预热时为null
+    private final ReplaceWarmUp warmUp;
+    //没有可切换方式的替换时为null
+    private final ReplaceSwitcher switcher;
+
+    public ReplaceEndpoint(ReplaceRegistry registry) {
+        this(registry, null);
+    }
+
+    public ReplaceEndpoint(ReplaceRegistry registry, ReplaceWarmUp warmUp) {
+        this(registry, warmUp, null);
+    }
+
+    public ReplaceEndpoint(ReplaceRegistry registry, ReplaceWarmUp warmUp, ReplaceSwitcher switcher) {
+        this.registry = registry;
+        this.warmUp = warmUp;
+        this.switcher = switcher;
+    }
+
+    @ReadOperation
+    public ReplaceDescriptor replacements() {
+        List<ReplacementDescriptor> replacements = registry.getReplaceMap().entrySet().stream()
+                .map(e -> new ReplacementDescriptor(e.getKey(), e.getValue())).collect(Collectors.toList());
+        return new ReplaceDescriptor(registry, replacements, warmUp != null ? new WarmUpDescriptor(warmUp) : null,
+                switcher != null ? switchables() : Collections.emptyList());
+    }
+
+    /**
+     * 切换可切换bean的实现
+     *
+     * @param beanName  bean名称
+     * @param className 原bean的类名或替换类名
+     * @return 切换后的可切换bean信息
+     */
+    @WriteOperation
+    public SwitchableDescriptor switchTo(@Selector String beanName, String className) {
+        if (switcher == null) {
+            throw new IllegalArgumentException("没有可切换的bean");
+        }
+        switcher.switchTo(beanName, className);
+        return new SwitchableDescriptor(beanName, switcher.getCurrent().get(beanName), switcher.getCandidates(beanName));
+    }
+
+    private List<SwitchableDescriptor> switchables() {
+        return switcher.getCurrent().entrySet().stream()
+                .map(e -> new SwitchableDescriptor(e.getKey(), e.getValue(), switcher.getCandidates(e.getKey())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 端点返回信息
+     */
+    public static final class ReplaceDescriptor {
+        private final int scanResources;
+        private final int scanParsed;
+        private final double scanMillis;
+        private final List<String> unReplaced;
+        private final List<ReplacementDescriptor> replacements;
+        private final WarmUpDescriptor warmUp;
+        private final List<SwitchableDescriptor> switchables;
+
+        private ReplaceDescriptor(ReplaceRegistry registry, List<ReplacementDescriptor> replacements,
+                                  WarmUpDescriptor warmUp, List<SwitchableDescriptor> switchables) {
+            this.scanResources = registry.getScanResourceCount();
+            this.scanParsed = registry.getScanParsedCount();
+            this.scanMillis = millis(registry.getScanNanos());
+            this.unReplaced = registry.unReplacedBean();
+            this.replacements = replacements;
+            this.warmUp = warmUp;
+            this.switchables = switchables;
+        }
+
+        public int getScanResources() {
+            return scanResources;
+        }
+
+        public int getScanParsed() {
+            return scanParsed;
+        }
+
+        public double getScanMillis() {
+            return scanMillis;
+        }
+
+        public List<String> getUnReplaced() {
+            return unReplaced;
+        }
+
+        public List<ReplacementDescriptor> getReplacements() {
+            return replacements;
+        }
+
+        public WarmUpDescriptor getWarmUp() {
+            return warmUp;
+        }
+
+        public List<SwitchableDescriptor> getSwitchables() {
+            return switchables;
+        }
+    }
+
+    /**
+     * 可切换bean的当前实现和候选实现
+     */
+    public static final class SwitchableDescriptor {
+        private final String beanName;
+        private final String current;
+        private final List<String> candidates;
+
+        private SwitchableDescriptor(String beanName, String current, List<String> candidates) {
+            this.beanName = beanName;
+            this.current = current;
+            this.candidates = candidates;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public String getCurrent() {
+            return current;
+        }
+
+        public List<String> getCandidates() {
+            return candidates;
+        }
+    }
+
+    /**
+     * 预热进度
+     */
+    public static final class WarmUpDescriptor {
+        private final ReplaceWarmUp.State state;
+        private final int total;
+        private final int completed;
+        private final int failed;
+        private final double millis;
+        private final Map<String, Double> beanMillis;
+
+        private WarmUpDescriptor(ReplaceWarmUp warmUp) {
+            this.state = warmUp.getState();
+            this.total = warmUp.getTotal();
+            this.completed = warmUp.getCompleted();
+            this.failed = warmUp.getFailed();
+            this.millis = millis(warmUp.getNanos());
+            this.beanMillis = new TreeMap<>();
+            warmUp.getBeanNanos().forEach((beanName, nanos) -> beanMillis.put(beanName, millis(nanos)));
+        }
+
+        public ReplaceWarmUp.State getState() {
+            return state;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public double getMillis() {
+            return millis;
+        }
+
+        public Map<String, Double> getBeanMillis() {
+            return beanMillis;
+        }
+    }
+
+    /**
+     * 单个替换的信息
+     */
+    public static final class ReplacementDescriptor {
+        private final String beanName;
+        private final String className;
+        private final int order;
+        private final String instantiation;
+        private final boolean replaced;
+        private final long instantiationCount;
+        private final double totalInstantiationMillis;
+        private final double maxInstantiationMillis;
+        private final PoolDescriptor pool;
+
+        private ReplacementDescriptor(String beanName, ReplaceInfo replaceInfo) {
+            this.beanName = beanName;
+            this.className = replaceInfo.getClazz();
+            this.order = replaceInfo.getOrder();
+            this.instantiation = replaceInfo.getMethod() != null ? "method:" + replaceInfo.getMethod().getName() : "constructor";
+            this.replaced = replaceInfo.isReplaced();
+            this.instantiationCount = replaceInfo.getInstantiationCount();
+            this.totalInstantiationMillis = millis(replaceInfo.getInstantiationNanos());
+            this.maxInstantiationMillis = millis(replaceInfo.getMaxInstantiationNanos());
+            this.pool = replaceInfo.getPool() != null ? new PoolDescriptor(replaceInfo.getPool()) : null;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public int getOrder() {
+            return order;
+        }
+
+        public String getInstantiation() {
+            return instantiation;
+        }
+
+        public boolean isReplaced() {
+            return replaced;
+        }
+
+        public long getInstantiationCount() {
+            return instantiationCount;
+        }
+
+        public double getTotalInstantiationMillis() {
+            return totalInstantiationMillis;
+        }
+
+        public double getMaxInstantiationMillis() {
+            return maxInstantiationMillis;
+        }
+
+        public PoolDescriptor getPool() {
+            return pool;
+        }
+    }
+
+    /**
+     * 池化方式的实例池统计
+     */
+    public static final class PoolDescriptor {
+        private final int size;
+        private final int idle;
+        private final long hits;
+        private final long misses;
+        private final long returns;
+        private final long discards;
+
+        private PoolDescriptor(ReplacePool pool) {
+            this.size = pool.getSize();
+            this.idle = pool.getIdle();
+            this.hits = pool.getHits();
+            this.misses = pool.getMisses();
+            this.returns = pool.getReturns();
+            this.discards = pool.getDiscards();
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getReturns() {
+            return returns;
+        }
+
+        public long getDiscards() {
+            return discards;
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * classpath中有actuator并且启用了替换时, 注册{@link ReplaceEndpoint}, 需要通过management.endpoints暴露
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(Endpoint.class)
+@ConditionalOnBean(ReplaceRegistry.class)
+public class ReplaceEndpointAutoConfiguration {
+
+    @Bean
+    @ConditionalOnAvailableEndpoint(endpoint = ReplaceEndpoint.class)
+    public ReplaceEndpoint replaceEndpoint(ReplaceRegistry replaceRegistry, ObjectProvider<ReplaceWarmUp> replaceWarmUp,
+                                           ObjectProvider<ReplaceSwitcher> replaceSwitcher) {
+        return new ReplaceEndpoint(replaceRegistry, replaceWarmUp.getIfAvailable(), replaceSwitcher.getIfAvailable());
+    }
+}
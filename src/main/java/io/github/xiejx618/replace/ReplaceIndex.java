@@ -0,0 +1,185 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 编译期生成的替换索引(META-INF/replace.index), 由{@link ReplaceIndexProcessor}生成.
+ * 格式与spring.components类似, key为替换类名, value为分号分隔的字段:
+ * <pre>
+ * org.demo.ext.HelloServiceExt=org.demo.service.HelloService;helloService;0;;SUBCLASS;false;dev,test;;;0
+ * </pre>
+ * 字段依次为: 父类类名;@Replace#value;@Replace#order;@Replace#instantiateMethod;@Replace#mode;@Replace#byType;
+ * profiles;onProperty;onClass(同名@Replace属性, 以逗号分隔);@Replace#poolSize.
+ * 旧版本生成的索引没有后面的字段, 按默认值处理.
+ * <p>
+ * 字符串值(包括数组的每一项)中的分号,逗号和反斜杠前加反斜杠转义, 如onProperty = "a.list=x,y"保存为a.list=x\,y.
+ * 索引文件由Properties读写, 文件中反斜杠会再转义一次.
+ */
+final class ReplaceIndex {
+    static final String LOCATION = "META-INF/replace.index";
+    static final String SEPARATOR = ";";
+    static final String ARRAY_SEPARATOR = ",";
+    private static final char ESCAPE = '\\';
+
+    private ReplaceIndex() {
+    }
+
+    /**
+     * 加载classpath下所有的索引文件
+     *
+     * @param resolver 资源解析器
+     * @return key为索引所在的classpath根路径, value为该根路径下的替换类(按类名排序)
+     * @throws IOException 读取索引失败
+     */
+    static Map<String, List<ReplaceCandidate>> load(ResourcePatternResolver resolver) throws IOException {
+        Map<String, List<ReplaceCandidate>> result = new LinkedHashMap<>();
+        for (Resource resource : resolver.getResources(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + LOCATION)) {
+            String url = resource.getURL().toString();
+            result.put(url.substring(0, url.length() - LOCATION.length()), load(resource));
+        }
+        return result;
+    }
+
+    /**
+     * 只加载指定classpath根路径下的索引文件, 不访问其它根路径
+     *
+     * @param resolver 资源解析器
+     * @param roots    classpath根路径
+     * @return key为索引所在的classpath根路径, value为该根路径下的替换类(按类名排序)
+     * @throws IOException 读取索引失败
+     */
+    static Map<String, List<ReplaceCandidate>> load(ResourcePatternResolver resolver, List<String> roots) throws IOException {
+        Map<String, List<ReplaceCandidate>> result = new LinkedHashMap<>();
+        for (String root : roots) {
+            Resource resource = resolver.getResource(root + LOCATION);
+            if (resource.exists()) {
+                result.put(root, load(resource));
+            }
+        }
+        return result;
+    }
+
+    private static List<ReplaceCandidate> load(Resource resource) throws IOException {
+        Properties properties = PropertiesLoaderUtils.loadProperties(resource);
+        List<ReplaceCandidate> candidates = new ArrayList<>(properties.size());
+        new TreeMap<>(properties).forEach((key, value) -> candidates.add(decode((String) key, (String) value)));
+        return candidates;
+    }
+
+    /**
+     * 编码一条索引, 与{@link ReplaceIndexProcessor}生成的格式相同. beanName已推断, 直接作为@Replace#value保存
+     *
+     * @param candidate 替换候选类
+     * @return 索引值
+     */
+    static String encode(ReplaceCandidate candidate) {
+        return candidate.getSuperClassName() + SEPARATOR + escape(candidate.getBeanName()) + SEPARATOR + candidate.getOrder()
+                + SEPARATOR + escape(candidate.getInstantiateMethod()) + SEPARATOR + candidate.getMode()
+                + SEPARATOR + candidate.isByType() + SEPARATOR + join(candidate.getProfiles())
+                + SEPARATOR + join(candidate.getOnProperty()) + SEPARATOR + join(candidate.getOnClass())
+                + SEPARATOR + candidate.getPoolSize();
+    }
+
+    /**
+     * 解析一条索引
+     *
+     * @param className 替换类名
+     * @param value     索引值
+     * @return 替换候选类
+     */
+    static ReplaceCandidate decode(String className, String value) {
+        String[] fields = split(value, SEPARATOR.charAt(0)).toArray(new String[0]);
+        if (fields.length < 4) {
+            throw new IllegalStateException("替换索引格式不正确:" + className + "=" + value);
+        }
+        return new ReplaceCandidate(className, fields[0], unescape(fields[1]), Integer.parseInt(fields[2]), unescape(fields[3]),
+                fields.length > 4 ? Replace.Mode.valueOf(fields[4]) : Replace.Mode.SUBCLASS,
+                fields.length > 5 && Boolean.parseBoolean(fields[5]), split(fields, 6), split(fields, 7), split(fields, 8),
+                fields.length > 9 ? Integer.parseInt(fields[9]) : 0);
+    }
+
+    /**
+     * 连接数组字段, 每一项都转义
+     */
+    static String join(String[] values) {
+        StringJoiner joiner = new StringJoiner(ARRAY_SEPARATOR);
+        for (String value : values) {
+            joiner.add(escape(value));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * 转义字符串值中的分隔符和转义符
+     *
+     * @param value 字符串值
+     * @return 转义后的值
+     */
+    static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ESCAPE || c == SEPARATOR.charAt(0) || c == ARRAY_SEPARATOR.charAt(0)) {
+                sb.append(ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf(ESCAPE) < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ESCAPE && i + 1 < value.length()) {
+                c = value.charAt(++i);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 按没有转义的分隔符拆分, 保留各部分中的转义
+     */
+    private static List<String> split(String value, char separator) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ESCAPE) {
+                i++;
+            } else if (c == separator) {
+                result.add(value.substring(start, i));
+                start = i + 1;
+            }
+        }
+        result.add(value.substring(start));
+        return result;
+    }
+
+    /**
+     * 拆分数组字段并去转义, 去掉空白项
+     */
+    private static String[] split(String[] fields, int index) {
+        if (fields.length <= index) {
+            return new String[0];
+        }
+        List<String> values = new ArrayList<>();
+        for (String item : split(fields[index], ARRAY_SEPARATOR.charAt(0))) {
+            String trimmed = item.trim();
+            if (!trimmed.isEmpty()) {
+                values.add(unescape(trimmed));
+            }
+        }
+        return values.toArray(new String[0]);
+    }
+}
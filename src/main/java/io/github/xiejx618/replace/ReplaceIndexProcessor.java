@@ -0,0 +1,270 @@
+package io.github.xiejx618.replace;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * 编译期生成替换索引META-INF/replace.index, 包所在的classpath根路径都有索引(或配置replace.index-enabled=true)时, 启动时读取索引代替classpath扫描.
+ * 与spring-context-indexer类似, 每个编译单元都会生成索引(即使为空), 用来标识该classpath根路径已被索引.
+ * <p>
+ * 直接标注@Replace和通过组合注解(元注解)间接标注的类都会记录. 组合注解的属性按Spring的规则覆盖@Replace的属性:
+ * 使用@AliasFor(annotation = Replace.class)显式指定的, 或者与@Replace同名的属性(value除外), 与扫描得到的属性一致.
+ * <p>
+ * 同时生成GraalVM native-image的元数据(META-INF/native-image/.../reflect-config.json和resource-config.json),
+ * 注册替换类的反射(构造函数和静态实例化方法)和索引资源, native image中不扫描classpath, 只读取索引.
+ */
+@SupportedAnnotationTypes("*")
+public class ReplaceIndexProcessor extends AbstractProcessor {
+    private static final String REPLACE = "io.github.xiejx618.replace.Replace";
+    private static final String ALIAS_FOR = "org.springframework.core.annotation.AliasFor";
+    private static final String VALUE = "value";
+    private static final String NATIVE_IMAGE_LOCATION = "META-INF/native-image/io.github.xiejx618/replace-index/";
+
+    //key为替换类名, value为索引值
+    private final Map<String, String> entries = new TreeMap<>();
+    private Elements elements;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        //组合注解标注的类不在getElementsAnnotatedWith(Replace)中, 需要遍历所有类
+        for (Element element : roundEnv.getRootElements()) {
+            indexTypes(element);
+        }
+        if (roundEnv.processingOver()) {
+            readExisting();
+            write();
+            writeNativeImageConfig();
+        }
+        return false;
+    }
+
+    /**
+     * 记录类及其内部类中的替换类
+     */
+    private void indexTypes(Element element) {
+        if (element.getKind() == ElementKind.CLASS) {
+            Map<String, Object> attributes = replaceAttributes(element);
+            if (attributes != null) {
+                index((TypeElement) element, attributes);
+            }
+        }
+        for (Element enclosed : element.getEnclosedElements()) {
+            if (enclosed instanceof TypeElement) {
+                indexTypes(enclosed);
+            }
+        }
+    }
+
+    /**
+     * 记录一个替换类
+     */
+    private void index(TypeElement element, Map<String, Object> attributes) {
+        TypeMirror superclass = element.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "替换bean的类不能没有父类", element);
+            return;
+        }
+        TypeElement superElement = (TypeElement) ((DeclaredType) superclass).asElement();
+        entries.put(elements.getBinaryName(element).toString(),
+                elements.getBinaryName(superElement) + ReplaceIndex.SEPARATOR + attributes.get("value")
+                        + ReplaceIndex.SEPARATOR + attributes.get("order")
+                        + ReplaceIndex.SEPARATOR + attributes.get("instantiateMethod")
+                        + ReplaceIndex.SEPARATOR + attributes.get("mode")
+                        + ReplaceIndex.SEPARATOR + attributes.get("byType")
+                        + ReplaceIndex.SEPARATOR + attributes.get("profiles")
+                        + ReplaceIndex.SEPARATOR + attributes.get("onProperty")
+                        + ReplaceIndex.SEPARATOR + attributes.get("onClass")
+                        + ReplaceIndex.SEPARATOR + attributes.get("poolSize"));
+    }
+
+    /**
+     * 获取类上直接或通过组合注解标注的@Replace的属性, 值都转为索引中的字符串形式
+     *
+     * @return 没有@Replace时返回null
+     */
+    private Map<String, Object> replaceAttributes(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            Map<String, Object> attributes = replaceAttributes(annotation, new HashSet<>());
+            if (attributes != null) {
+                return attributes;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从注解或其元注解中查找@Replace. 先取元注解中@Replace的属性, 再用当前注解中覆盖@Replace的属性替换,
+     * 所以离类越近的注解优先
+     *
+     * @param visited 已访问的注解类型, 避免元注解循环
+     */
+    private Map<String, Object> replaceAttributes(AnnotationMirror annotation, Set<String> visited) {
+        TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+        String name = type.getQualifiedName().toString();
+        if (REPLACE.equals(name)) {
+            Map<String, Object> attributes = new HashMap<>();
+            elements.getElementValuesWithDefaults(annotation).forEach((attribute, value) ->
+                    attributes.put(attribute.getSimpleName().toString(), indexValue(value.getValue())));
+            return attributes;
+        }
+        if (name.startsWith("java.lang.annotation.") || !visited.add(name)) {
+            return null;
+        }
+        for (AnnotationMirror meta : type.getAnnotationMirrors()) {
+            Map<String, Object> attributes = replaceAttributes(meta, visited);
+            if (attributes == null) {
+                continue;
+            }
+            elements.getElementValuesWithDefaults(annotation).forEach((attribute, value) -> {
+                String target = aliasFor(attribute);
+                if (target == null && !VALUE.equals(attribute.getSimpleName().toString())) {
+                    target = attribute.getSimpleName().toString();
+                }
+                if (target != null && attributes.containsKey(target)) {
+                    attributes.put(target, indexValue(value.getValue()));
+                }
+            });
+            return attributes;
+        }
+        return null;
+    }
+
+    /**
+     * 组合注解属性上@AliasFor(annotation = Replace.class)指定的@Replace属性名
+     *
+     * @return 没有指向@Replace的@AliasFor时返回null
+     */
+    private String aliasFor(ExecutableElement attribute) {
+        for (AnnotationMirror annotation : attribute.getAnnotationMirrors()) {
+            if (!ALIAS_FOR.equals(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString())) {
+                continue;
+            }
+            String target = null;
+            boolean replace = false;
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+                String key = entry.getKey().getSimpleName().toString();
+                Object value = entry.getValue().getValue();
+                if ("annotation".equals(key)) {
+                    replace = value instanceof DeclaredType
+                            && REPLACE.equals(((TypeElement) ((DeclaredType) value).asElement()).getQualifiedName().toString());
+                } else if (!String.valueOf(value).isEmpty()) {
+                    target = String.valueOf(value);
+                }
+            }
+            return replace ? (target != null ? target : attribute.getSimpleName().toString()) : null;
+        }
+        return null;
+    }
+
+    /**
+     * 注解属性值转为索引中的字符串: 数组用逗号连接, 枚举取名称, 字符串中的分隔符转义
+     */
+    private static String indexValue(Object value) {
+        if (value instanceof List) {
+            List<String> values = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                values.add(indexValue(((AnnotationValue) item).getValue()));
+            }
+            return String.join(ReplaceIndex.ARRAY_SEPARATOR, values);
+        }
+        if (value instanceof VariableElement) {
+            return ((VariableElement) value).getSimpleName().toString();
+        }
+        return ReplaceIndex.escape(String.valueOf(value));
+    }
+
+    /**
+     * 增量编译时, 保留之前索引中未参与本次编译, 但仍然存在且仍有@Replace注解的类
+     */
+    private void readExisting() {
+        Properties existing = new Properties();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ReplaceIndex.LOCATION);
+            try (InputStream in = file.openInputStream()) {
+                existing.load(in);
+            }
+        } catch (IOException e) {
+            //之前没有索引
+            return;
+        }
+        for (String className : existing.stringPropertyNames()) {
+            if (entries.containsKey(className)) {
+                continue;
+            }
+            TypeElement element = elements.getTypeElement(className.replace('$', '.'));
+            if (element != null && replaceAttributes(element) != null) {
+                entries.put(className, existing.getProperty(className));
+            }
+        }
+    }
+
+    /**
+     * 写入索引文件
+     */
+    private void write() {
+        Properties properties = new Properties();
+        properties.putAll(entries);
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ReplaceIndex.LOCATION);
+            try (OutputStream out = file.openOutputStream()) {
+                properties.store(out, null);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "写入替换索引失败:" + e);
+        }
+    }
+
+    /**
+     * 写入native-image元数据: 替换类的构造函数和方法可反射调用, 索引文件打包到镜像中
+     */
+    private void writeNativeImageConfig() {
+        StringBuilder reflect = new StringBuilder("[");
+        for (String className : entries.keySet()) {
+            reflect.append(reflect.length() > 1 ? "," : "").append("\n  {\"name\": \"").append(className)
+                    .append("\", \"allDeclaredConstructors\": true, \"allDeclaredMethods\": true}");
+        }
+        reflect.append(entries.isEmpty() ? "]\n" : "\n]\n");
+        String resource = "{\n  \"resources\": {\n    \"includes\": [\n      {\"pattern\": \"\\\\Q"
+                + ReplaceIndex.LOCATION + "\\\\E\"}\n    ]\n  }\n}\n";
+        writeResource(NATIVE_IMAGE_LOCATION + "reflect-config.json", reflect.toString());
+        writeResource(NATIVE_IMAGE_LOCATION + "resource-config.json", resource);
+    }
+
+    private void writeResource(String location, String content) {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", location);
+            try (Writer writer = file.openWriter()) {
+                writer.write(content);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "写入" + location + "失败:" + e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package io.github.xiejx618.replace;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 替换信息
+ */
+class ReplaceInfo implements Serializable {
+    //顺序
+    private final int order;
+    //替换class
+    private final String clazz;
+    //实例化Bean的静态方法, 首次实例化时才加载
+    private final ReplaceStaticMethod method;
+    //使用的参数
+    private final Object[] args;
+    //替换方式
+    private final Replace.Mode mode;
+    //是否已替换(已使用替换类实例化)
+    private volatile boolean replaced;
+    //实例化次数
+    private final LongAdder instantiationCount = new LongAdder();
+    //实例化累计耗时(纳秒)
+    private final LongAdder instantiationNanos = new LongAdder();
+    //实例化最大耗时(纳秒)
+    private final AtomicLong maxInstantiationNanos = new AtomicLong();
+    //已解析的实例化计划
+    private transient volatile ReplaceInstanceSupplier.Plan plan;
+    //池化方式的实例池, 不池化时为null
+    private transient ReplacePool pool;
+
+    public int getOrder() {
+        return order;
+    }
+
+    public String getClazz() {
+        return clazz;
+    }
+
+    ReplaceStaticMethod getMethod() {
+        return method;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    public Replace.Mode getMode() {
+        return mode;
+    }
+
+    public boolean isReplaced() {
+        return replaced;
+    }
+
+    public long getInstantiationCount() {
+        return instantiationCount.sum();
+    }
+
+    public long getInstantiationNanos() {
+        return instantiationNanos.sum();
+    }
+
+    public long getMaxInstantiationNanos() {
+        return maxInstantiationNanos.get();
+    }
+
+    //通过beanClass方式
+    public ReplaceInfo(int order, String clazz) {
+        this(order, clazz, Replace.Mode.SUBCLASS);
+    }
+
+    //通过beanClass方式, 指定替换方式
+    public ReplaceInfo(int order, String clazz, Replace.Mode mode) {
+        this(order, clazz, null, null, mode);
+    }
+
+    //通过自定义实例化方法
+    public ReplaceInfo(int order, String clazz, ReplaceStaticMethod method, Object[] params) {
+        this(order, clazz, method, params, Replace.Mode.SUBCLASS);
+    }
+
+    private ReplaceInfo(int order, String clazz, ReplaceStaticMethod method, Object[] params, Replace.Mode mode) {
+        this.order = order;
+        this.clazz = clazz;
+        this.method = method;
+        this.args = params;
+        this.mode = mode;
+    }
+
+    ReplaceInstanceSupplier.Plan getPlan() {
+        return plan;
+    }
+
+    void setPlan(ReplaceInstanceSupplier.Plan plan) {
+        this.plan = plan;
+    }
+
+    ReplacePool getPool() {
+        return pool;
+    }
+
+    void setPool(ReplacePool pool) {
+        this.pool = pool;
+    }
+
+    void markReplaced() {
+        if (!replaced) {
+            replaced = true;
+        }
+    }
+
+    /**
+     * 记录一次实例化耗时
+     */
+    void recordInstantiation(long nanos) {
+        instantiationCount.increment();
+        instantiationNanos.add(nanos);
+        if (nanos > maxInstantiationNanos.get()) {
+            maxInstantiationNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    public String print() {
+        return clazz + "[" + order + (method != null ? "," + method.getName() : "")
+                + (mode != Replace.Mode.SUBCLASS ? "," + mode : "") + (pool != null ? ",pool=" + pool.getSize() : "") + "]";
+    }
+}
@@ -0,0 +1,307 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 替换类的实例化函数. 首次实例化时才加载替换类, 解析构造函数(或静态实例化方法)和参数并缓存为实例化计划,
+ * 之后每次实例化只需取参数并通过MethodHandle调用, 不再反射查找构造函数.
+ * 实例化计划缓存在{@link ReplaceInfo}上, 启用replace.fail-fast时由{@link ReplaceValidator}在启动时提前解析.
+ */
+final class ReplaceInstanceSupplier implements Supplier<Object> {
+    //统一的调用类型: (Object[])Object
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final String beanName;
+    private final ReplaceInfo replaceInfo;
+    private final ConfigurableApplicationContext context;
+
+    ReplaceInstanceSupplier(String beanName, ReplaceInfo replaceInfo, ConfigurableApplicationContext context) {
+        this.beanName = beanName;
+        this.replaceInfo = replaceInfo;
+        this.context = context;
+    }
+
+    @Override
+    public Object get() {
+        //池化方式优先取池中的实例
+        ReplacePool pool = replaceInfo.getPool();
+        if (pool != null) {
+            Object pooled = pool.take();
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+        StartupStep step = context.getApplicationStartup().start("replace.instantiate")
+                .tag("beanName", beanName).tag("class", replaceInfo.getClazz());
+        long start = System.nanoTime();
+        try {
+            return instantiate();
+        } finally {
+            replaceInfo.recordInstantiation(System.nanoTime() - start);
+            step.end();
+        }
+    }
+
+    private Object instantiate() {
+        return invoke(plan(replaceInfo, context), replaceInfo, beanName, null);
+    }
+
+    /**
+     * 装饰方式: 使用替换类包装原bean
+     *
+     * @param replaceInfo 替换信息
+     * @param context     ConfigurableApplicationContext
+     * @param beanName    bean名称
+     * @param bean        已初始化的原bean
+     * @return 替换类实例
+     */
+    static Object decorate(ReplaceInfo replaceInfo, ConfigurableApplicationContext context, String beanName, Object bean) {
+        StartupStep step = context.getApplicationStartup().start("replace.decorate")
+                .tag("beanName", beanName).tag("class", replaceInfo.getClazz());
+        long start = System.nanoTime();
+        try {
+            return invoke(plan(replaceInfo, context), replaceInfo, beanName, bean);
+        } finally {
+            replaceInfo.recordInstantiation(System.nanoTime() - start);
+            step.end();
+        }
+    }
+
+    /**
+     * 在容器外创建替换类实例, 用于可切换方式
+     *
+     * @param replaceInfo 替换信息
+     * @param context     ConfigurableApplicationContext
+     * @param beanName    bean名称
+     * @return 替换类实例
+     */
+    static Object create(ReplaceInfo replaceInfo, ConfigurableApplicationContext context, String beanName) {
+        long start = System.nanoTime();
+        try {
+            return invoke(plan(replaceInfo, context), replaceInfo, beanName, null);
+        } finally {
+            replaceInfo.recordInstantiation(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 按实例化计划创建替换类实例
+     *
+     * @param delegate 装饰方式时为原bean, 作为第一个参数
+     */
+    private static Object invoke(Plan plan, ReplaceInfo replaceInfo, String beanName, Object delegate) {
+        List<Function<String, ?>> resolvers = plan.resolvers;
+        Object[] args = new Object[resolvers.size()];
+        for (int i = delegate != null ? 1 : 0; i < args.length; i++) {
+            args[i] = resolvers.get(i).apply(beanName);
+        }
+        if (delegate != null) {
+            args[0] = delegate;
+        }
+        Object bean;
+        try {
+            bean = (Object) plan.handle.invokeExact(args);
+        } catch (Throwable e) {
+            throw new RuntimeException("实例化替换bean失败:" + replaceInfo.print(), e);
+        }
+        replaceInfo.markReplaced();
+        return bean;
+    }
+
+    /**
+     * 获取实例化计划, 没有解析过时解析并缓存到替换信息上
+     *
+     * @param replaceInfo 替换信息
+     * @param context     ConfigurableApplicationContext
+     * @return 实例化计划
+     */
+    static Plan plan(ReplaceInfo replaceInfo, ConfigurableApplicationContext context) {
+        Plan plan = replaceInfo.getPlan();
+        if (plan == null) {
+            synchronized (replaceInfo) {
+                plan = replaceInfo.getPlan();
+                if (plan == null) {
+                    plan = resolvePlan(replaceInfo, context);
+                    replaceInfo.setPlan(plan);
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 解析实例化计划
+     */
+    private static Plan resolvePlan(ReplaceInfo replaceInfo, ConfigurableApplicationContext context) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            if (replaceInfo.getMethod() != null) {
+                Method method = replaceInfo.getMethod().resolve(context.getClassLoader());
+                Object[] args = replaceInfo.getArgs();
+                List<Function<String, ?>> resolvers = new ArrayList<>(args.length);
+                for (Object arg : args) {
+                    resolvers.add(constant(arg));
+                }
+                return new Plan(lookup.unreflect(method).asSpreader(Object[].class, args.length).asType(INVOKE_TYPE),
+                        resolvers, new DependencyDescriptor[0]);
+            }
+            Class<?> clazz = ClassUtils.forName(replaceInfo.getClazz(), context.getClassLoader());
+            Constructor<?> constructor = resolveConstructor(clazz);
+            int paramCount = constructor.getParameterCount();
+            List<Function<String, ?>> resolvers = new ArrayList<>(paramCount);
+            List<DependencyDescriptor> dependencies = new ArrayList<>();
+            //实际调用的构造函数. 参数的注解仍从替换类的构造函数上读取
+            Constructor<?> target = constructor;
+            int first = 0;
+            if (replaceInfo.getMode() == Replace.Mode.DECORATOR) {
+                //第一个参数为原bean
+                Assert.isTrue(paramCount > 0 && !constructor.getParameterTypes()[0].isPrimitive(),
+                        replaceInfo.getClazz() + "的构造函数第一个参数必须为原bean");
+                resolvers.add(constant(null));
+                first = 1;
+                //装饰类没有覆盖的方法转发到原bean; 不能生成子类时(如native image)直接使用装饰类
+                if (ReplaceSwitchableProxy.isProxyable(clazz)) {
+                    target = ReplaceSwitchableProxy.decoratorClass(clazz, constructor.getParameterTypes()[0])
+                            .getConstructor(constructor.getParameterTypes());
+                }
+            }
+            for (int i = first; i < paramCount; i++) {
+                resolvers.add(resolveArgument(new MethodParameter(constructor, i), context, dependencies));
+            }
+            return new Plan(lookup.unreflectConstructor(target).asSpreader(Object[].class, paramCount)
+                    .asType(INVOKE_TYPE), resolvers, dependencies.toArray(new DependencyDescriptor[0]));
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("构造函数实例化bean失败", e);
+        }
+    }
+
+    /**
+     * 推断构造函数: 只有一个时直接使用, 多个时使用带@Autowired注解的
+     */
+    private static Constructor<?> resolveConstructor(Class<?> clazz) {
+        Constructor<?>[] ctors = clazz.getConstructors();
+        Assert.isTrue(ctors.length > 0, clazz.getName() + "找不到构造函数");
+        if (ctors.length == 1) {
+            return ctors[0];
+        }
+        return Arrays.stream(ctors).filter(c -> c.isAnnotationPresent(Autowired.class))
+                .findFirst().orElseThrow(() -> new IllegalStateException("多个构造函数时,可使用@Autowired指定构造函数"));
+    }
+
+    /**
+     * 解析构造函数参数的取值方式. 上下文,BeanFactory,Environment和@Value参数只解析一次, 其它参数与Spring的构造函数注入一样
+     * 通过{@link ConfigurableListableBeanFactory#resolveDependency}解析(支持泛型,@Qualifier,Optional,ObjectProvider,集合和@Lazy),
+     * 依赖描述只创建一次
+     *
+     * @param dependencies 收集依赖描述
+     */
+    private static Function<String, ?> resolveArgument(MethodParameter param, ConfigurableApplicationContext context,
+                                                       List<DependencyDescriptor> dependencies) {
+        Class<?> pType = param.getParameterType();
+        ConfigurableEnvironment environment = context.getEnvironment();
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        if (pType.isAssignableFrom(ConfigurableApplicationContext.class)) {
+            return constant(context);
+        } else if (pType.isAssignableFrom(ConfigurableListableBeanFactory.class)) {
+            return constant(beanFactory);
+        } else if (pType.isAssignableFrom(ConfigurableEnvironment.class)) {
+            return constant(environment);
+        } else if (param.hasParameterAnnotation(Value.class)) {
+            String value = environment.resolvePlaceholders(param.getParameterAnnotation(Value.class).value());
+            Object converted = ClassUtils.isAssignableValue(pType, value) ? value :
+                    environment.getConversionService().convert(value, pType);
+            return constant(converted);
+        } else {
+            DependencyDescriptor descriptor = new DependencyDescriptor(param, true);
+            dependencies.add(descriptor);
+            return new DependencyResolver(beanFactory, descriptor);
+        }
+    }
+
+    private static Function<String, Object> constant(Object value) {
+        return beanName -> value;
+    }
+
+    /**
+     * 实例化计划
+     */
+    static final class Plan {
+        //类型为(Object[])Object的构造函数或静态方法
+        private final MethodHandle handle;
+        //各参数的取值方式, 参数为正在实例化的beanName
+        private final List<Function<String, ?>> resolvers;
+        //从BeanFactory解析的依赖
+        private final DependencyDescriptor[] dependencies;
+
+        private Plan(MethodHandle handle, List<Function<String, ?>> resolvers, DependencyDescriptor[] dependencies) {
+            this.handle = handle;
+            this.resolvers = resolvers;
+            this.dependencies = dependencies;
+        }
+
+        DependencyDescriptor[] getDependencies() {
+            return dependencies;
+        }
+    }
+
+    /**
+     * 从BeanFactory解析依赖. 与AutowiredAnnotationBeanPostProcessor的shortcut类似, 解析结果是唯一的单例bean时记住其名称,
+     * 之后原型bean再次实例化时直接按名称获取, 不再按类型查找候选bean
+     */
+    private static final class DependencyResolver implements Function<String, Object> {
+        private final ConfigurableListableBeanFactory beanFactory;
+        private final DependencyDescriptor descriptor;
+        //已解析的单例bean名称
+        private volatile String shortcut;
+
+        private DependencyResolver(ConfigurableListableBeanFactory beanFactory, DependencyDescriptor descriptor) {
+            this.beanFactory = beanFactory;
+            this.descriptor = descriptor;
+        }
+
+        @Override
+        public Object apply(String beanName) {
+            String shortcut = this.shortcut;
+            if (shortcut != null) {
+                beanFactory.registerDependentBean(shortcut, beanName);
+                return beanFactory.getBean(shortcut, descriptor.getDependencyType());
+            }
+            Set<String> autowiredBeanNames = new LinkedHashSet<>(2);
+            Object value = beanFactory.resolveDependency(descriptor, beanName, autowiredBeanNames, null);
+            for (String autowiredBeanName : autowiredBeanNames) {
+                beanFactory.registerDependentBean(autowiredBeanName, beanName);
+            }
+            if (value != null && autowiredBeanNames.size() == 1) {
+                String autowiredBeanName = autowiredBeanNames.iterator().next();
+                //Optional,集合等包装类型的类型不匹配, 不记住
+                if (beanFactory.containsBean(autowiredBeanName) && beanFactory.isSingleton(autowiredBeanName)
+                        && beanFactory.isTypeMatch(autowiredBeanName, descriptor.getDependencyType())) {
+                    this.shortcut = autowiredBeanName;
+                }
+            }
+            return value;
+        }
+    }
+}
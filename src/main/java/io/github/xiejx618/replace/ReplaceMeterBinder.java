@@ -0,0 +1,57 @@
+package io.github.xiejx618.replace;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把扫描统计和替换bean的实例化耗时暴露为Micrometer指标. 指标只在采集时读取{@link ReplaceRegistry}的计数器,
+ * 实例化路径上不依赖Micrometer.
+ */
+public class ReplaceMeterBinder implements MeterBinder {
+    private final ReplaceRegistry registry;
+
+    public ReplaceMeterBinder(ReplaceRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        TimeGauge.builder("replace.scan.duration", registry, TimeUnit.NANOSECONDS, ReplaceRegistry::getScanNanos)
+                .description("扫描替换类耗时").register(meterRegistry);
+        Gauge.builder("replace.scan.resources", registry, ReplaceRegistry::getScanResourceCount)
+                .description("扫描访问过的class文件数").register(meterRegistry);
+        Gauge.builder("replace.scan.parsed", registry, ReplaceRegistry::getScanParsedCount)
+                .description("扫描完整解析过元数据的类数").register(meterRegistry);
+        Gauge.builder("replace.beans", registry, r -> r.getReplaceMap().size())
+                .description("替换bean数").register(meterRegistry);
+        registry.getReplaceMap().forEach((beanName, replaceInfo) -> {
+            FunctionTimer.builder("replace.instantiation", replaceInfo, ReplaceInfo::getInstantiationCount,
+                            ReplaceInfo::getInstantiationNanos, TimeUnit.NANOSECONDS)
+                    .tag("bean", beanName).tag("class", replaceInfo.getClazz())
+                    .description("替换bean实例化耗时").register(meterRegistry);
+            TimeGauge.builder("replace.instantiation.max", replaceInfo, TimeUnit.NANOSECONDS,
+                            ReplaceInfo::getMaxInstantiationNanos)
+                    .tag("bean", beanName).tag("class", replaceInfo.getClazz())
+                    .description("替换bean实例化最大耗时").register(meterRegistry);
+            ReplacePool pool = replaceInfo.getPool();
+            if (pool != null) {
+                FunctionCounter.builder("replace.pool.hits", pool, ReplacePool::getHits)
+                        .tag("bean", beanName).description("从池中取到实例的次数").register(meterRegistry);
+                FunctionCounter.builder("replace.pool.misses", pool, ReplacePool::getMisses)
+                        .tag("bean", beanName).description("池为空新建实例的次数").register(meterRegistry);
+                FunctionCounter.builder("replace.pool.returns", pool, ReplacePool::getReturns)
+                        .tag("bean", beanName).description("归还到池中的次数").register(meterRegistry);
+                FunctionCounter.builder("replace.pool.discards", pool, ReplacePool::getDiscards)
+                        .tag("bean", beanName).description("池满或重置失败丢弃实例的次数").register(meterRegistry);
+                Gauge.builder("replace.pool.idle", pool, ReplacePool::getIdle)
+                        .tag("bean", beanName).description("池中空闲实例数").register(meterRegistry);
+            }
+        });
+    }
+}
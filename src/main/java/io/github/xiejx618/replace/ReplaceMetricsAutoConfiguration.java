@@ -0,0 +1,21 @@
+package io.github.xiejx618.replace;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * classpath中有Micrometer并且启用了替换时, 注册{@link ReplaceMeterBinder}
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(MeterBinder.class)
+@ConditionalOnBean(ReplaceRegistry.class)
+public class ReplaceMetricsAutoConfiguration {
+
+    @Bean
+    public ReplaceMeterBinder replaceMeterBinder(ReplaceRegistry replaceRegistry) {
+        return new ReplaceMeterBinder(replaceRegistry);
+    }
+}
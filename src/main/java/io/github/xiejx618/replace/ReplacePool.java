@@ -0,0 +1,101 @@
+package io.github.xiejx618.replace;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 池化方式(@Replace#poolSize)的原型替换bean实例池. 固定大小的槽数组, 取出和归还都只用CAS, 不加锁;
+ * 每次从随机槽开始查找, 减少多线程在同一个槽上竞争. 池为空时由调用方新建实例, 池满时归还的实例直接丢弃.
+ */
+final class ReplacePool {
+    private final AtomicReferenceArray<Object> slots;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder returns = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+
+    ReplacePool(int size) {
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * 取出一个空闲实例
+     *
+     * @return 池为空时返回null
+     */
+    Object take() {
+        int size = slots.length();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            Object instance = slots.get(index);
+            if (instance != null && slots.compareAndSet(index, instance, null)) {
+                hits.increment();
+                return instance;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 归还实例
+     *
+     * @param instance 已重置的实例
+     * @return 池满时返回false, 实例被丢弃
+     */
+    boolean offer(Object instance) {
+        int size = slots.length();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, instance)) {
+                returns.increment();
+                return true;
+            }
+        }
+        discards.increment();
+        return false;
+    }
+
+    /**
+     * 丢弃一个不能归还的实例(如重置失败)
+     */
+    void discard() {
+        discards.increment();
+    }
+
+    int getSize() {
+        return slots.length();
+    }
+
+    /**
+     * 当前空闲实例数
+     */
+    int getIdle() {
+        int idle = 0;
+        for (int i = 0, size = slots.length(); i < size; i++) {
+            if (slots.get(i) != null) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getReturns() {
+        return returns.sum();
+    }
+
+    long getDiscards() {
+        return discards.sum();
+    }
+}
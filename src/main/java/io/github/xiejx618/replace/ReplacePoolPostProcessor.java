@@ -0,0 +1,130 @@
+package io.github.xiejx618.replace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 池化方式的原型替换bean归还: 调用{@link org.springframework.beans.factory.config.ConfigurableBeanFactory#destroyBean(String, Object)}
+ * 销毁原型bean时, 重置实例({@link ReplacePoolable})并放回池中. 只有池化的替换类需要销毁回调, 其它bean不受影响.
+ * request,session等scope代理的目标bean(scopedTarget.&lt;beanName&gt;)在scope结束销毁时同样归还, 按原beanName查找替换信息.
+ * <p>
+ * 池不预先填充, 只由销毁归还的实例填充: 启动时不创建实例, 不销毁(只getBean不调用destroyBean)的原型bean也就不会被复用.
+ * <p>
+ * 此回调之后Spring还会执行其它销毁回调(@PreDestroy, DisposableBean, AutoCloseable#close, 自定义destroy-method,
+ * 其它DestructionAwareBeanPostProcessor), 执行后的实例不能再复用. 所以只有没有任何其它销毁回调的bean才放回池中, 否则丢弃.
+ * <p>
+ * 从池中取出的实例由instanceSupplier返回, Spring仍会像新建实例一样执行依赖注入, Aware回调, 初始化回调(@PostConstruct,
+ * afterPropertiesSet, init-method)和AOP代理, 所以这些回调需要能重复执行.
+ */
+public class ReplacePoolPostProcessor implements DestructionAwareBeanPostProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplacePoolPostProcessor.class);
+    private static final String CLOSE_METHOD_NAME = "close";
+    private static final String SHUTDOWN_METHOD_NAME = "shutdown";
+
+    private final ConfigurableListableBeanFactory beanFactory;
+    private final ReplaceRegistry registry;
+    //池化的替换类名
+    private final Set<String> pooledClasses;
+    //beanName -> 是否没有其它销毁回调, 可以放回池中
+    private final Map<String, Boolean> reusable = new ConcurrentHashMap<>();
+
+    public ReplacePoolPostProcessor(ConfigurableListableBeanFactory beanFactory, ReplaceRegistry registry,
+                                    Set<String> pooledClasses) {
+        this.beanFactory = beanFactory;
+        this.registry = registry;
+        this.pooledClasses = pooledClasses;
+    }
+
+    @Override
+    public boolean requiresDestruction(Object bean) {
+        return pooledClasses.contains(ClassUtils.getUserClass(AopUtils.getTargetClass(bean)).getName());
+    }
+
+    @Override
+    public void postProcessBeforeDestruction(Object bean, String beanName) throws BeansException {
+        ReplaceInfo replaceInfo = registry.get(ScopedProxyUtils.isScopedTarget(beanName) ?
+                ScopedProxyUtils.getOriginalBeanName(beanName) : beanName);
+        ReplacePool pool = replaceInfo != null ? replaceInfo.getPool() : null;
+        //单例在容器关闭时销毁, 不放回池中
+        if (pool == null || beanFactory.isSingleton(beanName)) {
+            return;
+        }
+        Object target = target(bean);
+        //有其它销毁回调的实例在此之后会被销毁, 不能复用
+        if (target == null || !replaceInfo.getClazz().equals(target.getClass().getName())
+                || !reusable.computeIfAbsent(beanName, name -> !hasOtherDestruction(name, bean, target))) {
+            pool.discard();
+            return;
+        }
+        try {
+            if (target instanceof ReplacePoolable) {
+                ((ReplacePoolable) target).resetForReuse();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("重置{}失败, 丢弃实例", beanName, e);
+            pool.discard();
+            return;
+        }
+        pool.offer(target);
+    }
+
+    /**
+     * 是否有此回调之外的销毁回调: DisposableBean, AutoCloseable, 自定义或推断的destroy-method,
+     * 或其它DestructionAwareBeanPostProcessor(如处理@PreDestroy的CommonAnnotationBeanPostProcessor)需要销毁.
+     * 与DisposableBeanAdapter#hasDestroyMethod的判断一致(该类不是public)
+     */
+    private boolean hasOtherDestruction(String beanName, Object bean, Object target) {
+        if (target instanceof DisposableBean || target instanceof AutoCloseable
+                || !(beanFactory instanceof AbstractBeanFactory)) {
+            return true;
+        }
+        String destroyMethodName = beanFactory.getMergedBeanDefinition(beanName).getDestroyMethodName();
+        if (AbstractBeanDefinition.INFER_METHOD.equals(destroyMethodName)) {
+            //推断的destroy-method: public的close或shutdown方法
+            if (ClassUtils.hasMethod(target.getClass(), CLOSE_METHOD_NAME)
+                    || ClassUtils.hasMethod(target.getClass(), SHUTDOWN_METHOD_NAME)) {
+                return true;
+            }
+        } else if (StringUtils.hasLength(destroyMethodName)) {
+            return true;
+        }
+        for (BeanPostProcessor processor : ((AbstractBeanFactory) beanFactory).getBeanPostProcessors()) {
+            if (processor != this && processor instanceof DestructionAwareBeanPostProcessor
+                    && (((DestructionAwareBeanPostProcessor) processor).requiresDestruction(bean)
+                    || ((DestructionAwareBeanPostProcessor) processor).requiresDestruction(target))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 取AOP代理的目标对象
+     */
+    private static Object target(Object bean) {
+        if (!(bean instanceof Advised)) {
+            return bean;
+        }
+        try {
+            return ((Advised) bean).getTargetSource().getTarget();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
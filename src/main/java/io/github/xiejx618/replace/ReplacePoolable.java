@@ -0,0 +1,13 @@
+package io.github.xiejx618.replace;
+
+/**
+ * 池化方式的替换类可以实现此接口, 在实例归还到池之前重置状态(如清空缓冲区). 不实现时归还的实例不做任何处理.
+ * 再次取出时Spring会重新执行依赖注入和初始化回调, 不需要在这里重复
+ */
+public interface ReplacePoolable {
+
+    /**
+     * 重置实例状态. 抛出异常时实例被丢弃, 不放回池中
+     */
+    void resetForReuse();
+}
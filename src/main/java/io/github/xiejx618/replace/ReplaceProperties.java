@@ -1,5 +1,10 @@
 package io.github.xiejx618.replace;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 替换配置类
  */
@@ -12,6 +17,31 @@ public class ReplaceProperties {
      * 扫描包
      */
     private String packages;
+    /**
+     * 是否使用编译期生成的替换索引(META-INF/replace.index). 不配置时自动检测: 包所在的每个classpath根路径都有索引时才读取索引,
+     * 有一个没有索引就全部扫描. 为true时有索引的根路径读取索引, 其余扫描; 为false时总是扫描, 可用于排除过期的索引
+     */
+    private Boolean indexEnabled;
+    /**
+     * 替换方式
+     */
+    private Mode mode = Mode.INSTANTIATION;
+    /**
+     * 是否启动时校验替换类: 提前加载替换类并解析构造函数和参数, 检查依赖的bean是否存在, 配置错误时启动失败
+     */
+    private boolean failFast;
+    /**
+     * 扫描配置
+     */
+    private final Scan scan = new Scan();
+    /**
+     * 预热配置
+     */
+    private final WarmUp warmUp = new WarmUp();
+    /**
+     * 通过配置指定替换, 不需要扫描. key为需要替换的beanName
+     */
+    private Map<String, Mapping> mappings = new LinkedHashMap<>();
 
     public boolean isEnabled() {
         return enabled;
@@ -28,4 +58,281 @@ public class ReplaceProperties {
     public void setPackages(String packages) {
         this.packages = packages;
     }
+
+    public Boolean getIndexEnabled() {
+        return indexEnabled;
+    }
+
+    public void setIndexEnabled(Boolean indexEnabled) {
+        this.indexEnabled = indexEnabled;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    public Scan getScan() {
+        return scan;
+    }
+
+    public WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    public Map<String, Mapping> getMappings() {
+        return mappings;
+    }
+
+    public void setMappings(Map<String, Mapping> mappings) {
+        this.mappings = mappings;
+    }
+
+    /**
+     * 替换方式
+     */
+    public enum Mode {
+        /**
+         * 每个bean实例化前拦截(InstantiationAwareBeanPostProcessor), 可以替换任何时候注册的bean
+         */
+        INSTANTIATION,
+        /**
+         * 刷新上下文时一次性修改bean定义(BeanDefinitionRegistryPostProcessor), 不拦截每个bean的实例化.
+         * 不能替换BeanFactoryPostProcessor阶段之后才注册的bean和父容器的bean
+         */
+        DEFINITION
+    }
+
+    /**
+     * 扫描配置
+     */
+    public static class Scan {
+        /**
+         * 扫描并行度. 大于1时在有界的ForkJoinPool中并行解析资源和读取类元数据
+         */
+        private int parallelism = 1;
+        /**
+         * 是否先快速检查class文件, 只完整解析常量池引用了@Replace或类上有其它可能的组合注解(JDK,Jakarta,Kotlin和Spring自身的注解除外)的类
+         */
+        private boolean preFilter = true;
+        /**
+         * 磁盘扫描缓存目录. 配置后按classpath根路径缓存扫描结果, 指纹(jar的大小和修改时间,目录下class文件的摘要)一致时不再扫描
+         */
+        private String cacheDir;
+        /**
+         * 只扫描文件名匹配的jar(支持*通配符, 如myapp-*.jar), 为空时扫描所有jar. 目录总是扫描, 不匹配的jar不会打开
+         */
+        private List<String> jars = new ArrayList<>();
+        /**
+         * 是否共享扫描结果: 同一个类加载器和相同扫描配置的上下文只扫描一次
+         */
+        private boolean shared = true;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public boolean isPreFilter() {
+            return preFilter;
+        }
+
+        public void setPreFilter(boolean preFilter) {
+            this.preFilter = preFilter;
+        }
+
+        public String getCacheDir() {
+            return cacheDir;
+        }
+
+        public void setCacheDir(String cacheDir) {
+            this.cacheDir = cacheDir;
+        }
+
+        public List<String> getJars() {
+            return jars;
+        }
+
+        public void setJars(List<String> jars) {
+            this.jars = jars;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+
+        public void setShared(boolean shared) {
+            this.shared = shared;
+        }
+    }
+
+    /**
+     * 预热配置
+     */
+    public static class WarmUp {
+        /**
+         * 是否在应用启动完成后, 在后台创建还没有创建的懒加载替换单例bean
+         */
+        private boolean enabled;
+        /**
+         * 预热线程数
+         */
+        private int threads = 2;
+        /**
+         * 是否预热完成后才接收流量(就绪状态为ACCEPTING_TRAFFIC)
+         */
+        private boolean readinessGate;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public boolean isReadinessGate() {
+            return readinessGate;
+        }
+
+        public void setReadinessGate(boolean readinessGate) {
+            this.readinessGate = readinessGate;
+        }
+    }
+
+    /**
+     * 替换配置, 与@Replace的属性对应
+     */
+    public static class Mapping {
+        /**
+         * 需要替换的beanName, 为空时使用key. 通过环境变量配置时key会被转为小写, 此时需要在这里指定原始beanName
+         */
+        private String beanName;
+        /**
+         * 替换类名
+         */
+        private String className;
+        /**
+         * 排序值, 同@Replace#order
+         */
+        private int order = Integer.MAX_VALUE;
+        /**
+         * 静态实例化方法名, 同@Replace#instantiateMethod
+         */
+        private String instantiateMethod;
+        /**
+         * 替换方式, 同@Replace#mode
+         */
+        private Replace.Mode mode = Replace.Mode.SUBCLASS;
+        /**
+         * 生效的profile, 同@Replace#profiles
+         */
+        private List<String> profiles = new ArrayList<>();
+        /**
+         * 生效需要的配置, 同@Replace#onProperty
+         */
+        private List<String> onProperty = new ArrayList<>();
+        /**
+         * 生效需要存在的类名, 同@Replace#onClass
+         */
+        private List<String> onClass = new ArrayList<>();
+        /**
+         * 池化的实例数, 同@Replace#poolSize
+         */
+        private int poolSize;
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public void setBeanName(String beanName) {
+            this.beanName = beanName;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public void setClassName(String className) {
+            this.className = className;
+        }
+
+        public int getOrder() {
+            return order;
+        }
+
+        public void setOrder(int order) {
+            this.order = order;
+        }
+
+        public String getInstantiateMethod() {
+            return instantiateMethod;
+        }
+
+        public void setInstantiateMethod(String instantiateMethod) {
+            this.instantiateMethod = instantiateMethod;
+        }
+
+        public Replace.Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Replace.Mode mode) {
+            this.mode = mode;
+        }
+
+        public List<String> getProfiles() {
+            return profiles;
+        }
+
+        public void setProfiles(List<String> profiles) {
+            this.profiles = profiles;
+        }
+
+        public List<String> getOnProperty() {
+            return onProperty;
+        }
+
+        public void setOnProperty(List<String> onProperty) {
+            this.onProperty = onProperty;
+        }
+
+        public List<String> getOnClass() {
+            return onClass;
+        }
+
+        public void setOnClass(List<String> onClass) {
+            this.onClass = onClass;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+    }
 }
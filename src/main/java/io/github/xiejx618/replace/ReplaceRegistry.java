@@ -0,0 +1,243 @@
+package io.github.xiejx618.replace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 每个应用上下文各自的替换信息. 扫描期间收集候选, 扫描结束后发布不可变快照, 之后只读, 可以多线程访问.
+ * 以单例{@link #BEAN_NAME}注册到上下文的BeanFactory, 也可以注入使用.
+ */
+public class ReplaceRegistry {
+    public static final String BEAN_NAME = "io.github.xiejx618.replace.internalReplaceRegistry";
+    private static final Logger logger = LoggerFactory.getLogger(ReplaceRegistry.class);
+
+    //扫描期间收集的替换信息
+    private final Map<String, ReplaceInfo> candidates = new HashMap<>();
+    //扫描结束后发布的不可变快照
+    private volatile Map<String, ReplaceInfo> replaceMap = Collections.emptyMap();
+    //可切换方式的所有替换类: beanName -> (替换类名 -> 替换信息)
+    private final Map<String, Map<String, ReplaceInfo>> switchableCandidates = new HashMap<>();
+    private volatile Map<String, List<ReplaceInfo>> switchableMap = Collections.emptyMap();
+    //按类型替换的候选类, 所有bean定义注册完后由ReplaceTypeResolver匹配beanName
+    private final List<ReplaceCandidate> typeCandidates = new ArrayList<>();
+    //不满足生效条件而未注册的候选类数
+    private int unmatchedCount;
+    //扫描统计
+    private volatile int scanResourceCount;
+    private volatile int scanParsedCount;
+    private volatile long scanNanos;
+
+    /**
+     * 获取上下文的替换信息
+     *
+     * @param context 应用上下文
+     * @return 没有启用替换时返回null
+     */
+    public static ReplaceRegistry get(ConfigurableApplicationContext context) {
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        return beanFactory.containsSingleton(BEAN_NAME) ? (ReplaceRegistry) beanFactory.getSingleton(BEAN_NAME) : null;
+    }
+
+    /**
+     * 注册候选类. 如果一个bean被多次替换, 只保留排序值最小的; 排序值相同时, 先注册的优先
+     *
+     * @param candidate 替换候选类
+     * @param context   ConfigurableApplicationContext
+     */
+    synchronized void register(ReplaceCandidate candidate, ConfigurableApplicationContext context) {
+        //不满足生效条件的候选类不注册, 也不会加载
+        if (!candidate.matches(context)) {
+            logger.debug("{}不满足生效条件, 不替换{}", candidate.getClassName(), candidate.getBeanName());
+            unmatchedCount++;
+            return;
+        }
+        if (candidate.isByType()) {
+            typeCandidates.add(candidate);
+            return;
+        }
+        register(candidate.getBeanName(), candidate, context);
+    }
+
+    /**
+     * 以指定的beanName注册候选类, 用于按类型替换匹配到的bean
+     *
+     * @param beanName  bean名称
+     * @param candidate 替换候选类
+     * @param context   ConfigurableApplicationContext
+     */
+    synchronized void register(String beanName, ReplaceCandidate candidate, ConfigurableApplicationContext context) {
+        if (candidate.getMode() == Replace.Mode.SWITCHABLE && !StringUtils.hasText(candidate.getInstantiateMethod())) {
+            //可切换方式的所有替换类都要记录, 不只是排序值最小的
+            register(beanName, new ReplaceInfo(candidate.getOrder(), candidate.getClassName(), candidate.getMode()));
+            return;
+        }
+        ReplaceInfo existing = candidates.get(beanName);
+        if (existing != null && candidate.getOrder() >= existing.getOrder()) {
+            return;
+        }
+        try {
+            register(beanName, candidate.getOrder(), candidate.getClassName(),
+                    candidate.getInstantiateMethod(), candidate.getMode(), candidate.getPoolSize(), context);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 最终注册替换信息
+     *
+     * @param beanName   bean名称
+     * @param order      顺序
+     * @param className  替换类名
+     * @param methodName 静态实例化方法名
+     * @param mode       替换方式
+     * @param poolSize   池化的实例数
+     * @param context    ConfigurableApplicationContext
+     * @throws NoSuchMethodException 找不到替换类或静态实例方法会抛此异常
+     */
+    private void register(String beanName, int order, String className, String methodName, Replace.Mode mode,
+                          int poolSize, ConfigurableApplicationContext context) throws NoSuchMethodException {
+        if (poolSize > 0 && mode != Replace.Mode.SUBCLASS) {
+            throw new IllegalArgumentException("[" + className + "]的替换方式" + mode + "不支持poolSize");
+        }
+        ReplaceInfo replaceInfo;
+        if (!StringUtils.hasText(methodName)) {
+            replaceInfo = new ReplaceInfo(order, className, mode);
+        } else {
+            if (mode != Replace.Mode.SUBCLASS) {
+                throw new IllegalArgumentException("[" + className + "]的替换方式" + mode + "不支持instantiateMethod");
+            }
+            //只读取class文件查找和校验方法, 替换类在首次实例化时才加载
+            ReplaceStaticMethod method = ReplaceStaticMethod.find(context.getClassLoader(), className, methodName);
+            replaceInfo = new ReplaceInfo(order, className, method, method.args(context));
+        }
+        if (poolSize > 0) {
+            replaceInfo.setPool(new ReplacePool(poolSize));
+        }
+        register(beanName, replaceInfo);
+    }
+
+    /**
+     * 注册替换信息. 如果已有排序值更小或相等的, 则忽略
+     */
+    synchronized void register(String beanName, ReplaceInfo replaceInfo) {
+        if (replaceInfo.getMode() == Replace.Mode.SWITCHABLE) {
+            switchableCandidates.computeIfAbsent(beanName, name -> new LinkedHashMap<>())
+                    .putIfAbsent(replaceInfo.getClazz(), replaceInfo);
+        }
+        ReplaceInfo existing = candidates.get(beanName);
+        if (existing == null || replaceInfo.getOrder() < existing.getOrder()) {
+            candidates.put(beanName, replaceInfo);
+        }
+    }
+
+    /**
+     * 记录扫描统计
+     *
+     * @param resourceCount 访问过的class文件数
+     * @param parsedCount   完整解析过元数据的类数
+     * @param nanos         扫描耗时(纳秒)
+     */
+    void scanned(int resourceCount, int parsedCount, long nanos) {
+        this.scanResourceCount = resourceCount;
+        this.scanParsedCount = parsedCount;
+        this.scanNanos = nanos;
+    }
+
+    public int getScanResourceCount() {
+        return scanResourceCount;
+    }
+
+    public int getScanParsedCount() {
+        return scanParsedCount;
+    }
+
+    public long getScanNanos() {
+        return scanNanos;
+    }
+
+    /**
+     * 发布不可变快照
+     */
+    synchronized void publish() {
+        replaceMap = Collections.unmodifiableMap(new TreeMap<>(candidates));
+        Map<String, List<ReplaceInfo>> switchable = new TreeMap<>();
+        switchableCandidates.forEach((beanName, infos) -> switchable.put(beanName,
+                Collections.unmodifiableList(new ArrayList<>(infos.values()))));
+        switchableMap = Collections.unmodifiableMap(switchable);
+    }
+
+    /**
+     * 获取替换信息
+     */
+    ReplaceInfo get(String beanName) {
+        return replaceMap.get(beanName);
+    }
+
+    /**
+     * 获取bean所有可切换方式的替换信息
+     *
+     * @return 没有时返回空列表
+     */
+    List<ReplaceInfo> getSwitchable(String beanName) {
+        return switchableMap.getOrDefault(beanName, Collections.emptyList());
+    }
+
+    /**
+     * 获取按类型替换的候选类
+     */
+    synchronized List<ReplaceCandidate> getTypeCandidates() {
+        return new ArrayList<>(typeCandidates);
+    }
+
+    /**
+     * 获取所有替换信息(按beanName排序)
+     */
+    Map<String, ReplaceInfo> getReplaceMap() {
+        return replaceMap;
+    }
+
+    /**
+     * 不满足生效条件而未注册的候选类数
+     */
+    public synchronized int getUnmatchedCount() {
+        return unmatchedCount;
+    }
+
+    public boolean isEmpty() {
+        return replaceMap.isEmpty() && getTypeCandidates().isEmpty();
+    }
+
+    /**
+     * 断言替换Bean信息是否为空,并且打印替换Bean信息
+     *
+     * @param assertEmpty 是否断言为空
+     * @return 打印信息
+     */
+    public String replaceMapToString(boolean assertEmpty) {
+        //所有候选类都不满足生效条件时, 不是配置错误
+        Assert.isTrue(!assertEmpty || !isEmpty() || getUnmatchedCount() > 0,
+                "已启用Bean替换,但没有找到替换配置,请重新检查配置或者关闭Bean替换.");
+        StringBuilder sb = new StringBuilder("替换Bean配置如下:\n");
+        replaceMap.forEach((beanName, replaceInfo) -> sb.append("  ")
+                .append(replaceInfo.print()).append("替换").append(beanName).append(";\n"));
+        getTypeCandidates().forEach(candidate -> sb.append("  ").append(candidate.getClassName())
+                .append('[').append(candidate.getOrder()).append("]按类型替换").append(candidate.getSuperClassName()).append(";\n"));
+        return sb.toString();
+    }
+
+    /**
+     * 获取未替换的bean(应在应用启动后调用)
+     */
+    public List<String> unReplacedBean() {
+        return replaceMap.entrySet().stream().filter(entry -> !entry.getValue().isReplaced())
+                .map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+}
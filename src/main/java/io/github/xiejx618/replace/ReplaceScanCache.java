@@ -0,0 +1,139 @@
+package io.github.xiejx618.replace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.ResourceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * 磁盘扫描缓存. 每个扫描路径(classpath根路径下的包路径)一个缓存文件, 保存该路径的指纹和扫描到的替换类,
+ * 指纹一致时直接使用缓存, 不再扫描; 只有变化了的路径才会重新扫描.
+ * <p>
+ * 指纹: jar为jar文件路径,大小和修改时间; 目录为其下所有class文件的路径,大小和修改时间的摘要. 其它协议不缓存.
+ * 影响扫描结果的配置(预过滤,jar过滤)也是指纹的一部分, 配置变化后不使用之前的缓存.
+ * 缓存文件的格式与{@link ReplaceIndex}相同, 另外保存了路径和指纹.
+ */
+final class ReplaceScanCache {
+    private static final Logger logger = LoggerFactory.getLogger(ReplaceScanCache.class);
+    private static final String LOCATION_KEY = "@location";
+    private static final String FINGERPRINT_KEY = "@fingerprint";
+
+    private final Path dir;
+    //影响扫描结果的配置
+    private final String settings;
+
+    ReplaceScanCache(String dir, boolean preFilter, List<String> jars) {
+        this.dir = Paths.get(dir);
+        this.settings = "preFilter=" + (preFilter ? ReplaceClassFilter.VERSION : 0) + ";jars=" + (jars != null ? String.join(",", jars) : "");
+    }
+
+    /**
+     * 计算扫描路径的指纹
+     *
+     * @param location 扫描路径
+     * @return 不支持缓存或计算失败时返回null
+     */
+    String fingerprint(String location) {
+        try {
+            URL url = new URL(location);
+            if (ResourceUtils.isJarURL(url)) {
+                Path jar = Paths.get(ResourceUtils.toURI(ResourceUtils.extractArchiveURL(url)));
+                BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+                return jar + ":" + attributes.size() + ":" + attributes.lastModifiedTime().toMillis() + ":" + settings;
+            }
+            if (ResourceUtils.isFileURL(url)) {
+                Path path = Paths.get(ResourceUtils.toURI(url));
+                StringBuilder sb = new StringBuilder(settings).append('\n');
+                try (Stream<Path> stream = Files.walk(path)) {
+                    stream.filter(p -> p.toString().endsWith(ClassUtils.CLASS_FILE_SUFFIX)).sorted().forEach(p -> {
+                        try {
+                            BasicFileAttributes attributes = Files.readAttributes(p, BasicFileAttributes.class);
+                            sb.append(p).append(':').append(attributes.size()).append(':')
+                                    .append(attributes.lastModifiedTime().toMillis()).append('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+                return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            logger.debug("计算扫描缓存指纹失败:{}", location, e);
+        }
+        return null;
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param location    扫描路径
+     * @param fingerprint 当前指纹
+     * @return 没有缓存或指纹不一致时返回null
+     */
+    List<ReplaceCandidate> read(String location, String fingerprint) {
+        Path file = file(location);
+        if (fingerprint == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.debug("读取扫描缓存失败:{}", file, e);
+            return null;
+        }
+        if (!location.equals(properties.remove(LOCATION_KEY)) || !fingerprint.equals(properties.remove(FINGERPRINT_KEY))) {
+            return null;
+        }
+        List<ReplaceCandidate> candidates = new ArrayList<>(properties.size());
+        new TreeMap<>(properties).forEach((key, value) -> candidates.add(ReplaceIndex.decode((String) key, (String) value)));
+        return candidates;
+    }
+
+    /**
+     * 写入缓存. 先写临时文件再替换, 失败时只记录日志
+     *
+     * @param location    扫描路径
+     * @param fingerprint 扫描前计算的指纹
+     * @param candidates  扫描到的替换类
+     */
+    void write(String location, String fingerprint, List<ReplaceCandidate> candidates) {
+        if (fingerprint == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(LOCATION_KEY, location);
+        properties.setProperty(FINGERPRINT_KEY, fingerprint);
+        candidates.forEach(c -> properties.setProperty(c.getClassName(), ReplaceIndex.encode(c)));
+        Path file = file(location);
+        try {
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, null);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("写入扫描缓存失败:{}", file, e);
+        }
+    }
+
+    private Path file(String location) {
+        return dir.resolve(DigestUtils.md5DigestAsHex(location.getBytes(StandardCharsets.UTF_8)) + ".index");
+    }
+}
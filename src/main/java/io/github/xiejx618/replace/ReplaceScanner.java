@@ -0,0 +1,384 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.NativeDetector;
+import org.springframework.core.io.Resource;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 扫描包下的@Replace类. 编译期索引(META-INF/replace.index)按replace.index-enabled使用:
+ * <ul>
+ * <li>不配置时自动检测, 与spring-context-indexer类似: 包所在的每个classpath根路径都有索引时读取索引, 有一个没有索引就全部扫描,
+ * 避免只有部分模块经过注解处理器编译时漏掉替换类.</li>
+ * <li>为true时, 已生成索引的classpath根路径直接读取索引, 其余根路径才扫描class文件.</li>
+ * <li>为false时总是扫描.</li>
+ * </ul>
+ * <p>
+ * 并行度大于1时, 在有界的ForkJoinPool中并行解析资源和读取元数据. 结果仍按包,classpath根路径,资源的顺序返回,
+ * 所以同样排序值的替换类, 和串行扫描选中的是同一个.
+ * <p>
+ * 每个包的扫描记录为一个StartupStep(replace.scan.package), 包依次扫描, 包内的根路径和资源才并行,
+ * 这样StartupStep不会交错.
+ * <p>
+ * GraalVM native image中无法扫描class文件, 只读取编译期索引(忽略replace.index-enabled).
+ * <p>
+ * 配置了replace.scan.jars时, 不使用classpath*:, 而是从类加载器的URL得到根路径, 只访问目录和匹配的jar.
+ * <p>
+ * 扫描结果按类加载器和影响结果的配置(包,索引,预过滤,jar过滤)共享: 同一个classpath创建的多个上下文(如bootstrap和主上下文,
+ * 测试中不同配置的上下文)只扫描一次, 共享同一个不可变结果. 类加载器为弱引用, DevTools重启后的新类加载器会重新扫描.
+ * <p>
+ * 共享且上下文类加载器为DevTools的RestartClassLoader时, 目录中每个class文件的读取结果也按文件路径缓存, 记录文件的修改时间和大小.
+ * 缓存挂在RestartClassLoader的父类加载器上(重启时不变, 也是弱引用), 每次重启扫描前先移除已经不存在的文件.
+ * 重新扫描时仍然列出所有class文件, 所以新增和删除的@Replace类都能识别, 但只有变化了的class文件才重新读取.
+ * 不使用DevTools时不缓存, 扫描结束后不保留非候选类的任何信息.
+ */
+final class ReplaceScanner {
+    //类加载器 -> (扫描配置 -> 扫描结果)
+    private static final Map<ClassLoader, Map<List<Object>, List<ReplaceCandidate>>> SHARED_RESULTS =
+            new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+    //RestartClassLoader的父类加载器 -> (目录中class文件路径 -> 读取结果), 跨DevTools重启保留
+    private static final Map<ClassLoader, Map<String, ClassResult>> CLASS_RESULTS =
+            new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+    private static final String RESTART_CLASS_LOADER = "org.springframework.boot.devtools.restart.classloader.RestartClassLoader";
+
+    private final ConfigurableApplicationContext context;
+    //是否使用索引, null为自动检测
+    private final Boolean useIndex;
+    private final int parallelism;
+    private final boolean preFilter;
+    //磁盘扫描缓存, 没有配置缓存目录时为null
+    private final ReplaceScanCache cache;
+    //是否共享扫描结果
+    private final boolean shared;
+    //DevTools重启间保留的class文件读取结果, 不共享或不是DevTools重启类加载器时为null
+    private final Map<String, ClassResult> classResults;
+    //jar文件名模式
+    private final List<String> jars;
+    //配置jar过滤时的classpath根路径, 没有配置时为null
+    private final List<String> classpathRoots;
+    private final ApplicationStartup applicationStartup;
+    //访问过的class文件数
+    private final AtomicInteger resourceCount = new AtomicInteger();
+    //完整解析过元数据的类数
+    private final AtomicInteger parsedCount = new AtomicInteger();
+    //复用了上次读取结果的class文件数
+    private final AtomicInteger reusedCount = new AtomicInteger();
+    //只在本次扫描使用, 不缓存MetadataReader: 每个class文件只读一次, 扫描结束后只保留@Replace候选类.
+    //不能使用CachingMetadataReaderFactory(context), 它会把所有扫描过的类元数据缓存在上下文中直到应用关闭
+    private final MetadataReaderFactory readerFactory;
+
+    ReplaceScanner(ConfigurableApplicationContext context, ReplaceProperties properties) {
+        this.context = context;
+        this.useIndex = properties.getIndexEnabled();
+        this.parallelism = properties.getScan().getParallelism();
+        this.preFilter = properties.getScan().isPreFilter();
+        String cacheDir = properties.getScan().getCacheDir();
+        this.cache = StringUtils.hasText(cacheDir) ?
+                new ReplaceScanCache(cacheDir, preFilter, properties.getScan().getJars()) : null;
+        this.shared = properties.getScan().isShared();
+        this.classResults = shared ? classResults(context.getClassLoader()) : null;
+        this.jars = properties.getScan().getJars();
+        this.classpathRoots = CollectionUtils.isEmpty(jars) || NativeDetector.inNativeImage() ? null :
+                ReplaceClasspath.roots(context.getClassLoader(), jars);
+        this.readerFactory = new SimpleMetadataReaderFactory(context.getClassLoader());
+        this.applicationStartup = context.getApplicationStartup();
+    }
+
+    /**
+     * 扫描包
+     *
+     * @param packages 包名
+     * @return 按扫描顺序排列的替换候选类
+     */
+    List<ReplaceCandidate> scan(Collection<String> packages) {
+        if (CollectionUtils.isEmpty(packages)) {
+            return Collections.emptyList();
+        }
+        if (!shared) {
+            return doScan(packages);
+        }
+        ClassLoader classLoader = context.getClassLoader();
+        List<Object> key = Arrays.asList(new ArrayList<>(packages), useIndex, preFilter,
+                jars != null ? new ArrayList<>(jars) : Collections.emptyList());
+        Map<List<Object>, List<ReplaceCandidate>> results = classLoader == null ? new HashMap<>() :
+                SHARED_RESULTS.computeIfAbsent(classLoader, loader -> new ConcurrentHashMap<>());
+        List<ReplaceCandidate> result = results.get(key);
+        if (result == null) {
+            result = Collections.unmodifiableList(doScan(packages));
+            List<ReplaceCandidate> existing = results.putIfAbsent(key, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取DevTools重启间保留的class文件读取结果
+     *
+     * @return 不是RestartClassLoader时返回null
+     */
+    private static Map<String, ClassResult> classResults(ClassLoader classLoader) {
+        if (classLoader == null || classLoader.getParent() == null
+                || !RESTART_CLASS_LOADER.equals(classLoader.getClass().getName())) {
+            return null;
+        }
+        return CLASS_RESULTS.computeIfAbsent(classLoader.getParent(), parent -> new ConcurrentHashMap<>());
+    }
+
+    private List<ReplaceCandidate> doScan(Collection<String> packages) {
+        if (classResults != null) {
+            //重启期间删除的class文件不会再被访问, 移除它们的读取结果
+            classResults.keySet().removeIf(path -> !new File(path).isFile());
+        }
+        try {
+            Map<String, List<ReplaceCandidate>> index = loadIndex();
+            if (parallelism <= 1) {
+                return doScan(packages, index);
+            }
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                //在指定pool中执行, 内部的并行流也使用此pool
+                return pool.submit(() -> doScan(packages, index)).get();
+            } finally {
+                pool.shutdown();
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 加载索引. 配置了jar过滤时, 只读取过滤后的根路径下的索引
+     */
+    private Map<String, List<ReplaceCandidate>> loadIndex() throws IOException {
+        if (Boolean.FALSE.equals(useIndex) && !NativeDetector.inNativeImage()) {
+            return Collections.emptyMap();
+        }
+        return classpathRoots != null ? ReplaceIndex.load(context, classpathRoots) : ReplaceIndex.load(context);
+    }
+
+    private List<ReplaceCandidate> doScan(Collection<String> packages, Map<String, List<ReplaceCandidate>> index) {
+        List<ReplaceCandidate> result = new ArrayList<>();
+        for (String pkg : packages) {
+            StartupStep step = applicationStartup.start("replace.scan.package").tag("package", pkg.trim());
+            int resources = resourceCount.get();
+            int parsed = parsedCount.get();
+            int reused = reusedCount.get();
+            List<ReplaceCandidate> found = stream(roots(pkg.trim(), index)).flatMap(root -> root.resolve().stream())
+                    .collect(Collectors.toList());
+            step.tag("resources", String.valueOf(resourceCount.get() - resources))
+                    .tag("parsed", String.valueOf(parsedCount.get() - parsed))
+                    .tag("reused", String.valueOf(reusedCount.get() - reused))
+                    .tag("matches", String.valueOf(found.size())).end();
+            result.addAll(found);
+        }
+        return result;
+    }
+
+    /**
+     * 访问过的class文件数
+     */
+    int getResourceCount() {
+        return resourceCount.get();
+    }
+
+    /**
+     * 完整解析过元数据的类数
+     */
+    int getParsedCount() {
+        return parsedCount.get();
+    }
+
+    /**
+     * 获取包所在的classpath根路径. 自动检测索引时, 只要有一个根路径没有索引, 所有根路径都扫描
+     */
+    private List<Root> roots(String pkg, Map<String, List<ReplaceCandidate>> index) {
+        List<Root> roots = indexedRoots(pkg, index);
+        if (useIndex == null && !NativeDetector.inNativeImage() && roots.stream().anyMatch(root -> root.indexed == null)) {
+            return roots.stream().map(root -> root.indexed != null ? new Root(pkg, root.location, null) : root)
+                    .collect(Collectors.toList());
+        }
+        return roots;
+    }
+
+    private List<Root> indexedRoots(String pkg, Map<String, List<ReplaceCandidate>> index) {
+        if (NativeDetector.inNativeImage()) {
+            //native image中只有索引
+            return index.values().stream().map(indexed -> new Root(pkg, null, indexed)).collect(Collectors.toList());
+        }
+        String pkgPath = ClassUtils.convertClassNameToResourcePath(pkg) + "/";
+        if (classpathRoots != null) {
+            //只访问过滤后的根路径, 根路径下没有该包时扫描结果为空
+            return classpathRoots.stream().map(root -> new Root(pkg, root + pkgPath, index.get(root)))
+                    .collect(Collectors.toList());
+        }
+        if (index.isEmpty() && cache == null) {
+            //没有任何索引和缓存时,直接扫描整个包
+            return Collections.singletonList(new Root(pkg, ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + pkgPath, null));
+        }
+        //按classpath根路径区分,有索引读取索引,没有索引再读取缓存或扫描
+        List<Root> roots = new ArrayList<>();
+        for (Resource resource : getResources(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + pkgPath)) {
+            String url;
+            try {
+                url = resource.getURL().toString();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            List<ReplaceCandidate> indexed = url.endsWith(pkgPath) ?
+                    index.get(url.substring(0, url.length() - pkgPath.length())) : null;
+            roots.add(new Root(pkg, url, indexed));
+        }
+        return roots;
+    }
+
+    /**
+     * 读取class文件的元数据. DevTools重启后目录中的class文件修改时间和大小没有变化时, 直接使用上次的读取结果
+     *
+     * @return 没有@Replace注解时返回null
+     */
+    private ReplaceCandidate read(Resource resource) {
+        resourceCount.incrementAndGet();
+        if (classResults == null || !resource.isFile()) {
+            return parse(resource);
+        }
+        String path;
+        BasicFileAttributes attributes;
+        try {
+            File file = resource.getFile();
+            path = file.getPath();
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return parse(resource);
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        ClassResult cached = classResults.get(path);
+        if (cached != null && cached.matches(lastModified, attributes.size(), preFilter)) {
+            reusedCount.incrementAndGet();
+            return cached.candidate;
+        }
+        ReplaceCandidate candidate = parse(resource);
+        classResults.put(path, new ClassResult(lastModified, attributes.size(), preFilter, candidate));
+        return candidate;
+    }
+
+    /**
+     * 解析class文件的元数据. 启用预过滤时, 常量池中没有引用@Replace且类上没有其它可能的组合注解的类不做完整解析
+     *
+     * @return 没有@Replace注解时返回null
+     */
+    private ReplaceCandidate parse(Resource resource) {
+        try {
+            if (preFilter && !ReplaceClassFilter.mayReplace(resource)) {
+                return null;
+            }
+            parsedCount.incrementAndGet();
+            return ReplaceCandidate.of(readerFactory.getMetadataReader(resource).getAnnotationMetadata());
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取" + resource + "失败", e);
+        }
+    }
+
+    private Resource[] getResources(String location) {
+        try {
+            return context.getResources(location);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 按并行度决定是否使用并行流. 并行流的collect保持元素原有顺序
+     */
+    private <T> Stream<T> stream(Collection<T> collection) {
+        return parallelism > 1 ? collection.parallelStream() : collection.stream();
+    }
+
+    /**
+     * 复用了上次读取结果的class文件数
+     */
+    int getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * 一个class文件的读取结果
+     */
+    private static final class ClassResult {
+        private final long lastModified;
+        private final long size;
+        private final boolean preFilter;
+        //没有@Replace注解时为null
+        private final ReplaceCandidate candidate;
+
+        private ClassResult(long lastModified, long size, boolean preFilter, ReplaceCandidate candidate) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.preFilter = preFilter;
+            this.candidate = candidate;
+        }
+
+        private boolean matches(long lastModified, long size, boolean preFilter) {
+            return this.lastModified == lastModified && this.size == size && this.preFilter == preFilter;
+        }
+    }
+
+    /**
+     * 包所在的一个classpath根路径
+     */
+    private final class Root {
+        private final String pkg;
+        //以/结尾的包路径
+        private final String location;
+        //索引中的候选类, 为null时表示没有索引
+        private final List<ReplaceCandidate> indexed;
+
+        private Root(String pkg, String location, List<ReplaceCandidate> indexed) {
+            this.pkg = pkg;
+            this.location = location;
+            this.indexed = indexed;
+        }
+
+        private List<ReplaceCandidate> resolve() {
+            if (indexed != null) {
+                String prefix = pkg + ".";
+                return indexed.stream().filter(c -> c.getClassName().startsWith(prefix)).collect(Collectors.toList());
+            }
+            String fingerprint = cache != null ? cache.fingerprint(location) : null;
+            List<ReplaceCandidate> cached = fingerprint != null ? cache.read(location, fingerprint) : null;
+            if (cached != null) {
+                return cached;
+            }
+            List<ReplaceCandidate> scanned = stream(Arrays.asList(getResources(location + "**/*.class")))
+                    .map(ReplaceScanner.this::read).filter(Objects::nonNull).collect(Collectors.toList());
+            if (fingerprint != null) {
+                cache.write(location, fingerprint, scanned);
+            }
+            return scanned;
+        }
+    }
+}
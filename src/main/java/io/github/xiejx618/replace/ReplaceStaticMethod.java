@@ -0,0 +1,247 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * 替换类的静态实例化方法. 注册时直接读取class文件(ASM)查找和校验方法签名, 不加载替换类;
+ * 首次实例化时才通过{@link #resolve}加载类并按方法描述符取得Method.
+ * <p>
+ * 返回类型必须是替换类或其父类型(如被替换bean的类), 沿class文件中的父类和接口查找, 同样不加载类.
+ * <p>
+ * 参数类型只能是ConfigurableApplicationContext,ConfigurableListableBeanFactory,ConfigurableEnvironment或它们的父类型,
+ * 父类型集合由这三个已加载的Spring类型计算, 所以判断参数类型也不需要加载参数类.
+ * native image中没有class文件资源, 这时退回反射查找.
+ */
+final class ReplaceStaticMethod {
+    //按判断顺序: 参数值的来源类型 -> 可以接收它的参数类型名
+    private static final Map<Class<?>, Set<String>> ASSIGNABLE = new LinkedHashMap<>();
+
+    static {
+        ASSIGNABLE.put(ConfigurableApplicationContext.class, supertypes(ConfigurableApplicationContext.class));
+        ASSIGNABLE.put(ConfigurableListableBeanFactory.class, supertypes(ConfigurableListableBeanFactory.class));
+        ASSIGNABLE.put(ConfigurableEnvironment.class, supertypes(ConfigurableEnvironment.class));
+    }
+
+    private final String className;
+    private final String name;
+    private final String descriptor;
+
+    private ReplaceStaticMethod(String className, String name, String descriptor) {
+        this.className = className;
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    /**
+     * 根据类名和方法名查找唯一的静态方法, 不加载类
+     *
+     * @param classLoader 类加载器
+     * @param className   替换类名
+     * @param name        方法名
+     * @return 找到的方法
+     * @throws NoSuchMethodException    找不到方法
+     * @throws IllegalArgumentException 方法多于一个, 或返回类型不是替换类或其父类型
+     */
+    static ReplaceStaticMethod find(ClassLoader classLoader, String className, String name) throws NoSuchMethodException {
+        List<String> descriptors = new ArrayList<>();
+        //没有class文件资源时反射加载的替换类
+        Class<?> loaded = null;
+        String resource = ClassUtils.convertClassNameToResourcePath(className) + ClassUtils.CLASS_FILE_SUFFIX;
+        ClassLoader loader = classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader();
+        try (InputStream in = loader != null ? loader.getResourceAsStream(resource) : ClassLoader.getSystemResourceAsStream(resource)) {
+            if (in != null) {
+                new ClassReader(in).accept(new ClassVisitor(SpringAsmInfo.ASM_VERSION) {
+                    @Override
+                    public MethodVisitor visitMethod(int access, String methodName, String descriptor, String signature,
+                                                     String[] exceptions) {
+                        if ((access & Opcodes.ACC_STATIC) != 0 && methodName.equals(name)) {
+                            descriptors.add(descriptor);
+                        }
+                        return null;
+                    }
+                }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            } else {
+                //没有class文件资源(如native image), 退回反射
+                loaded = ClassUtils.forName(className, classLoader);
+                declaredStaticMethods(loaded, name).forEach(method -> descriptors.add(Type.getMethodDescriptor(method)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取" + resource + "失败", e);
+        } catch (ClassNotFoundException e) {
+            throw new NoSuchMethodException("找不到类" + className);
+        }
+        if (descriptors.isEmpty()) {
+            throw new NoSuchMethodException("在" + className + "类上找不到静态的" + name + "方法");
+        }
+        if (descriptors.size() > 1) {
+            throw new IllegalArgumentException("在" + className + "类找到" + name + "方法多于一个");
+        }
+        Type returnType = Type.getReturnType(descriptors.get(0));
+        if (returnType.getSort() != Type.OBJECT) {
+            throw new IllegalArgumentException("在" + className + "类找到的" + name + "方法返回类型为" + returnType.getClassName()
+                    + ", 必须返回替换类的实例");
+        }
+        if (!isSupertype(loader, className, loaded, returnType.getClassName())) {
+            throw new IllegalArgumentException("在" + className + "类找到的" + name + "方法返回类型" + returnType.getClassName()
+                    + "不是" + className + "或其父类型");
+        }
+        return new ReplaceStaticMethod(className, name, descriptors.get(0));
+    }
+
+    /**
+     * 类型是否为替换类或其父类型. 读取class文件沿父类和接口查找, 不加载类; 替换类没有class文件资源时使用已加载的类判断
+     *
+     * @param loader    类加载器
+     * @param className 替换类名
+     * @param loaded    反射加载的替换类, 有class文件资源时为null
+     * @param typeName  类型名
+     */
+    private static boolean isSupertype(ClassLoader loader, String className, Class<?> loaded, String typeName) {
+        if (Object.class.getName().equals(typeName)) {
+            return true;
+        }
+        if (loaded != null) {
+            try {
+                return ClassUtils.forName(typeName, loader).isAssignableFrom(loaded);
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+        Deque<String> queue = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        queue.add(className);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            if (current.equals(typeName)) {
+                return true;
+            }
+            if (!visited.add(current)) {
+                continue;
+            }
+            String resource = ClassUtils.convertClassNameToResourcePath(current) + ClassUtils.CLASS_FILE_SUFFIX;
+            try (InputStream in = loader != null ? loader.getResourceAsStream(resource) : ClassLoader.getSystemResourceAsStream(resource)) {
+                if (in == null) {
+                    continue;
+                }
+                ClassReader reader = new ClassReader(in);
+                if (reader.getSuperName() != null) {
+                    queue.add(Type.getObjectType(reader.getSuperName()).getClassName());
+                }
+                for (String type : reader.getInterfaces()) {
+                    queue.add(Type.getObjectType(type).getClassName());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取" + resource + "失败", e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按参数类型取参数值, 与参数顺序对应
+     *
+     * @param context ConfigurableApplicationContext
+     * @return 参数值
+     */
+    Object[] args(ConfigurableApplicationContext context) {
+        Type[] types = Type.getArgumentTypes(descriptor);
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            Class<?> source = source(types[i]);
+            if (source == ConfigurableApplicationContext.class) {
+                args[i] = context;
+            } else if (source == ConfigurableListableBeanFactory.class) {
+                args[i] = context.getBeanFactory();
+            } else if (source == ConfigurableEnvironment.class) {
+                args[i] = context.getEnvironment();
+            } else {
+                throw new IllegalArgumentException("不支持的方法[" + className + "#" + name + "]参数类型" + types[i].getClassName());
+            }
+        }
+        return args;
+    }
+
+    /**
+     * 加载替换类并取得方法
+     *
+     * @param classLoader 类加载器
+     * @return 方法, 非public时已设置为可访问
+     * @throws ReflectiveOperationException 加载类失败或类已变化找不到方法
+     */
+    Method resolve(ClassLoader classLoader) throws ReflectiveOperationException {
+        Method method = declaredStaticMethods(ClassUtils.forName(className, classLoader), name)
+                .filter(m -> Type.getMethodDescriptor(m).equals(descriptor)).findFirst()
+                .orElseThrow(() -> new NoSuchMethodException(className + "#" + name + descriptor));
+        if (!Modifier.isPublic(method.getModifiers())) {
+            method.setAccessible(true);
+        }
+        return method;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getDescriptor() {
+        return descriptor;
+    }
+
+    private static Stream<Method> declaredStaticMethods(Class<?> clazz, String name) {
+        return Stream.of(clazz.getDeclaredMethods())
+                .filter(m -> Modifier.isStatic(m.getModifiers()) && m.getName().equals(name));
+    }
+
+    /**
+     * 参数值的来源类型
+     *
+     * @return 不支持时返回null
+     */
+    private static Class<?> source(Type type) {
+        if (type.getSort() != Type.OBJECT) {
+            return null;
+        }
+        for (Map.Entry<Class<?>, Set<String>> entry : ASSIGNABLE.entrySet()) {
+            if (entry.getValue().contains(type.getClassName())) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 类型自身和所有父类,接口的类名
+     */
+    private static Set<String> supertypes(Class<?> type) {
+        Set<String> result = new HashSet<>();
+        Deque<Class<?>> queue = new ArrayDeque<>();
+        queue.add(type);
+        while (!queue.isEmpty()) {
+            Class<?> current = queue.poll();
+            if (result.add(current.getName())) {
+                if (current.getSuperclass() != null) {
+                    queue.add(current.getSuperclass());
+                }
+                queue.addAll(Arrays.asList(current.getInterfaces()));
+            }
+        }
+        result.add(Object.class.getName());
+        return result;
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.xiejx618.replace;
+
+/**
+ * 可切换方式({@link Replace.Mode#SWITCHABLE})的委托代理实现的接口, 可以通过它获取或直接修改当前委托的实现
+ */
+public interface ReplaceSwitchable {
+
+    /**
+     * @return 当前委托的实现
+     */
+    Object getReplaceDelegate();
+
+    /**
+     * 修改委托的实现, 之后的调用都转发到新的实现. 通常应通过{@link ReplaceSwitcher#switchTo(String, String)}切换
+     *
+     * @param delegate 新的实现, 必须是原bean类型的实例
+     */
+    void setReplaceDelegate(Object delegate);
+}
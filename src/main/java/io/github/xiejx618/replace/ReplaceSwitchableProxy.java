@@ -0,0 +1,205 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.cglib.core.ReflectUtils;
+import org.springframework.core.NativeDetector;
+import org.springframework.objenesis.SpringObjenesis;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 生成可切换方式的委托代理类. 代理类继承原bean的类, 持有一个volatile的委托字段,
+ * 每个可覆盖的public方法都直接转发到委托字段上的同名方法(invokevirtual), 没有反射和拦截器链.
+ * <p>
+ * 代理类通过{@link SpringObjenesis}实例化, 不调用构造函数, 所以代理对象自身的字段都是默认值;
+ * 只有public方法会转发, final,protected和包内可见的方法在代理对象上执行.
+ * <p>
+ * 装饰方式也用同样的方式生成装饰类的子类({@link #decoratorClass}): 装饰类没有覆盖的public方法转发到原bean,
+ * 而不是在装饰类自身(原bean类的另一个实例)上执行.
+ */
+final class ReplaceSwitchableProxy {
+    static final String CLASS_SUFFIX = "$$ReplaceSwitchable";
+    static final String DECORATOR_CLASS_SUFFIX = "$$ReplaceDecorator";
+    private static final String DELEGATE_FIELD = "replaceDelegate";
+    private static final String SWITCHABLE = Type.getInternalName(ReplaceSwitchable.class);
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    //原bean的类 -> 代理类, 类为弱引用, 不阻止类加载器回收
+    private static final Map<Class<?>, Class<?>> PROXY_CLASSES =
+            new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+    //装饰类 -> 转发子类
+    private static final Map<Class<?>, Class<?>> DECORATOR_CLASSES =
+            new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+    private static final SpringObjenesis OBJENESIS = new SpringObjenesis();
+
+    private ReplaceSwitchableProxy() {
+    }
+
+    /**
+     * 是否能为该类生成代理. native image中不能在运行时定义类
+     */
+    static boolean isProxyable(Class<?> clazz) {
+        return !NativeDetector.inNativeImage() && !clazz.isInterface() && !clazz.isArray() && !clazz.isPrimitive() && !Modifier.isFinal(clazz.getModifiers())
+                && clazz.getClassLoader() != null && !ReplaceSwitchable.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * 创建代理对象
+     *
+     * @param clazz    原bean的类
+     * @param delegate 初始的委托
+     * @return 代理对象
+     */
+    static ReplaceSwitchable create(Class<?> clazz, Object delegate) {
+        Class<?> proxyClass = PROXY_CLASSES.computeIfAbsent(clazz, ReplaceSwitchableProxy::define);
+        ReplaceSwitchable proxy = (ReplaceSwitchable) OBJENESIS.newInstance(proxyClass);
+        proxy.setReplaceDelegate(delegate);
+        return proxy;
+    }
+
+    /**
+     * 获取装饰类的转发子类. 子类的构造函数与装饰类的public构造函数一一对应, 第一个参数(原bean)保存到委托字段后再调用装饰类的构造函数;
+     * 装饰类没有覆盖的public方法(声明在原bean类型或其父类型中)都转发到原bean
+     *
+     * @param decorator    装饰类
+     * @param delegateType 原bean的类型, 即装饰类构造函数的第一个参数类型
+     * @return 转发子类
+     */
+    static Class<?> decoratorClass(Class<?> decorator, Class<?> delegateType) {
+        return DECORATOR_CLASSES.computeIfAbsent(decorator, clazz -> define(clazz, clazz.getName() + DECORATOR_CLASS_SUFFIX,
+                generateDecorator(clazz, clazz.getName() + DECORATOR_CLASS_SUFFIX, delegateType)));
+    }
+
+    private static Class<?> define(Class<?> clazz) {
+        String className = clazz.getName() + CLASS_SUFFIX;
+        return define(clazz, className, generate(clazz, className));
+    }
+
+    private static Class<?> define(Class<?> clazz, String className, byte[] bytes) {
+        try {
+            return ReflectUtils.defineClass(className, bytes, clazz.getClassLoader(), clazz.getProtectionDomain(), clazz);
+        } catch (Exception e) {
+            throw new IllegalStateException("生成代理类失败:" + className, e);
+        }
+    }
+
+    private static byte[] generate(Class<?> clazz, String className) {
+        String owner = className.replace('.', '/');
+        String superName = Type.getInternalName(clazz);
+        String delegateDesc = Type.getDescriptor(clazz);
+        //没有分支, 不需要计算栈帧
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC, owner, null, superName,
+                new String[]{SWITCHABLE});
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_VOLATILE, DELEGATE_FIELD, delegateDesc, null, null).visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "getReplaceDelegate", "()L" + OBJECT + ";", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, owner, DELEGATE_FIELD, delegateDesc);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "setReplaceDelegate", "(L" + OBJECT + ";)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, superName);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, owner, DELEGATE_FIELD, delegateDesc);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        forward(cw, owner, clazz, clazz, delegateDesc);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static byte[] generateDecorator(Class<?> decorator, String className, Class<?> delegateType) {
+        String owner = className.replace('.', '/');
+        String superName = Type.getInternalName(decorator);
+        String delegateDesc = Type.getDescriptor(delegateType);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC, owner, null, superName, null);
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, DELEGATE_FIELD, delegateDesc, null, null).visitEnd();
+        for (Constructor<?> constructor : decorator.getConstructors()) {
+            String desc = Type.getConstructorDescriptor(constructor);
+            Type[] argumentTypes = Type.getArgumentTypes(desc);
+            if (argumentTypes.length == 0) {
+                continue;
+            }
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", desc, null, exceptions(constructor.getExceptionTypes()));
+            mv.visitCode();
+            //先保存委托再调用装饰类的构造函数, 构造函数中调用的未覆盖方法也能转发
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(delegateType));
+            mv.visitFieldInsn(Opcodes.PUTFIELD, owner, DELEGATE_FIELD, delegateDesc);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            int slot = 1;
+            for (Type argumentType : argumentTypes) {
+                mv.visitVarInsn(argumentType.getOpcode(Opcodes.ILOAD), slot);
+                slot += argumentType.getSize();
+            }
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", desc, false);
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        forward(cw, owner, decorator, delegateType, delegateDesc);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 生成转发方法: clazz中可覆盖的public方法, 声明在委托类型或其父类型中的, 都转发到委托字段
+     */
+    private static void forward(ClassWriter cw, String owner, Class<?> clazz, Class<?> delegateType, String delegateDesc) {
+        String delegateName = Type.getInternalName(delegateType);
+        boolean isInterface = delegateType.isInterface();
+        Set<String> signatures = new HashSet<>();
+        for (Method method : clazz.getMethods()) {
+            int modifiers = method.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || method.isBridge() || method.isSynthetic()
+                    || !method.getDeclaringClass().isAssignableFrom(delegateType)) {
+                continue;
+            }
+            String desc = Type.getMethodDescriptor(method);
+            if (!signatures.add(method.getName() + desc)) {
+                continue;
+            }
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(), desc, null,
+                    exceptions(method.getExceptionTypes()));
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, owner, DELEGATE_FIELD, delegateDesc);
+            int slot = 1;
+            for (Type argumentType : Type.getArgumentTypes(desc)) {
+                mv.visitVarInsn(argumentType.getOpcode(Opcodes.ILOAD), slot);
+                slot += argumentType.getSize();
+            }
+            mv.visitMethodInsn(isInterface ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL, delegateName,
+                    method.getName(), desc, isInterface);
+            mv.visitInsn(Type.getReturnType(desc).getOpcode(Opcodes.IRETURN));
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+    }
+
+    private static String[] exceptions(Class<?>[] types) {
+        String[] exceptions = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            exceptions[i] = Type.getInternalName(types[i]);
+        }
+        return exceptions;
+    }
+}
@@ -0,0 +1,171 @@
+package io.github.xiejx618.replace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 可切换方式({@link Replace.Mode#SWITCHABLE})的运行时切换. 原bean创建后被包装为委托代理({@link ReplaceSwitchable}),
+ * 容器中和其它bean注入的都是代理, 切换只修改代理的委托字段, 不重建bean也不刷新上下文.
+ * <p>
+ * 默认委托原bean, 可以通过配置replace.switch.&lt;beanName&gt;=&lt;替换类名&gt;指定实现: 启动时读取一次,
+ * Spring Cloud刷新配置(EnvironmentChangeEvent)后重新读取, 删除配置时切换回原bean. 也可以通过actuator端点或直接调用{@link #switchTo}切换.
+ * <p>
+ * 替换类实例在第一次切换到它时创建, 之后一直复用. 替换类实例会注入依赖(构造函数和@Autowired), 但不执行初始化回调, 也不会被AOP代理.
+ */
+public class ReplaceSwitcher implements ApplicationListener<ApplicationEvent> {
+    public static final String BEAN_NAME = "io.github.xiejx618.replace.internalReplaceSwitcher";
+    static final String SWITCH_PREFIX = "replace.switch.";
+    //Spring Cloud刷新配置时发布的事件, 按类名判断, 不依赖Spring Cloud
+    private static final String ENVIRONMENT_CHANGE_EVENT = "org.springframework.cloud.context.environment.EnvironmentChangeEvent";
+    private static final Logger logger = LoggerFactory.getLogger(ReplaceSwitcher.class);
+
+    private final ConfigurableApplicationContext context;
+    private final ReplaceRegistry registry;
+    //beanName -> 切换状态
+    private final Map<String, Switch> switches = new ConcurrentHashMap<>();
+
+    ReplaceSwitcher(ConfigurableApplicationContext context, ReplaceRegistry registry) {
+        this.context = context;
+        this.registry = registry;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (ENVIRONMENT_CHANGE_EVENT.equals(event.getClass().getName())) {
+            switches.keySet().forEach(beanName -> {
+                try {
+                    applyConfigured(beanName);
+                } catch (RuntimeException e) {
+                    //刷新的配置有误时保持当前实现
+                    logger.warn("{}按配置切换失败", beanName, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 包装原bean
+     *
+     * @param beanName bean名称
+     * @param original 已初始化的原bean, 可能已经是CGLIB代理(如@Transactional), 代理按用户类生成
+     * @return 委托代理, 原bean的类不能生成代理时返回原bean
+     */
+    Object wrap(String beanName, Object original) {
+        Class<?> type = ClassUtils.getUserClass(original);
+        if (!ReplaceSwitchableProxy.isProxyable(type)) {
+            logger.warn("{}的类{}不能生成可切换代理, 不支持切换", beanName, type.getName());
+            return original;
+        }
+        ReplaceSwitchable proxy = ReplaceSwitchableProxy.create(type, original);
+        switches.put(beanName, new Switch(proxy, original, type));
+        applyConfigured(beanName);
+        return proxy;
+    }
+
+    /**
+     * 切换实现
+     *
+     * @param beanName  bean名称
+     * @param className 原bean的类名, 或该bean可切换方式的替换类名
+     * @throws IllegalArgumentException bean不可切换或类名不是它的候选实现
+     */
+    public void switchTo(String beanName, String className) {
+        Switch target = switches.get(beanName);
+        if (target == null) {
+            throw new IllegalArgumentException(beanName + "不是可切换的bean");
+        }
+        synchronized (target) {
+            Object delegate = resolve(beanName, target, className);
+            target.proxy.setReplaceDelegate(delegate);
+            logger.info("{}切换为{}", beanName, className);
+        }
+    }
+
+    /**
+     * 获取每个可切换bean当前的实现类名
+     *
+     * @return key为beanName, value为当前委托的类名
+     */
+    public Map<String, String> getCurrent() {
+        Map<String, String> result = new TreeMap<>();
+        switches.forEach((beanName, target) ->
+                result.put(beanName, ClassUtils.getUserClass(target.proxy.getReplaceDelegate()).getName()));
+        return result;
+    }
+
+    /**
+     * 获取可切换bean的候选实现类名, 第一个为原bean的类
+     *
+     * @param beanName bean名称
+     * @return 不可切换时返回空列表
+     */
+    public List<String> getCandidates(String beanName) {
+        Switch target = switches.get(beanName);
+        if (target == null) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>();
+        result.add(target.userClass.getName());
+        registry.getSwitchable(beanName).forEach(info -> result.add(info.getClazz()));
+        return result;
+    }
+
+    /**
+     * 按配置切换, 没有配置时切换回原bean
+     */
+    private void applyConfigured(String beanName) {
+        String className = context.getEnvironment().getProperty(SWITCH_PREFIX + beanName);
+        Switch target = switches.get(beanName);
+        String current = ClassUtils.getUserClass(target.proxy.getReplaceDelegate()).getName();
+        String expected = StringUtils.hasText(className) ? className.trim() : target.userClass.getName();
+        if (!expected.equals(current)) {
+            switchTo(beanName, expected);
+        }
+    }
+
+    private Object resolve(String beanName, Switch target, String className) {
+        if (target.userClass.getName().equals(className)) {
+            return target.original;
+        }
+        Object delegate = target.alternates.get(className);
+        if (delegate != null) {
+            return delegate;
+        }
+        ReplaceInfo replaceInfo = registry.getSwitchable(beanName).stream()
+                .filter(info -> info.getClazz().equals(className)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(className + "不是" + beanName + "的可切换实现"));
+        delegate = ReplaceInstanceSupplier.create(replaceInfo, context, beanName);
+        context.getBeanFactory().autowireBean(delegate);
+        if (!target.userClass.isInstance(delegate)) {
+            throw new IllegalArgumentException(className + "不是" + target.userClass.getName() + "的子类");
+        }
+        target.alternates.put(className, delegate);
+        return delegate;
+    }
+
+    /**
+     * 一个可切换bean的状态
+     */
+    private static final class Switch {
+        private final ReplaceSwitchable proxy;
+        private final Object original;
+        //原bean的用户类, 原bean为CGLIB代理时为被代理的类
+        private final Class<?> userClass;
+        //已创建的替换类实例, 类名 -> 实例
+        private final Map<String, Object> alternates = new ConcurrentHashMap<>();
+
+        private Switch(ReplaceSwitchable proxy, Object original, Class<?> userClass) {
+            this.proxy = proxy;
+            this.original = original;
+            this.userClass = userClass;
+        }
+    }
+}
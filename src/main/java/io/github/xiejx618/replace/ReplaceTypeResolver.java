@@ -0,0 +1,119 @@
+package io.github.xiejx618.replace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.util.ClassUtils;
+
+import java.util.*;
+
+/**
+ * 按类型替换(@Replace(byType = true)): 所有bean定义注册完后, 遍历一次bean定义建立类型到beanName的索引,
+ * 再为每个按类型替换的候选类查找索引, 注册到匹配的所有beanName. 不对每个替换单独调用getBeanNamesForType.
+ * <p>
+ * 只匹配类型与替换类父类完全相同的bean, 不匹配其子类型: 子类型的bean替换为父类的子类后会丢失子类型自身的行为,
+ * 按子类型注入的地方也会失败, 而且同一个bean可能被多个替换类的父类匹配, 无法确定选哪个. 没有完全相同类型的bean时,
+ * 警告日志中列出子类型的bean, 这些bean需要按名称替换.
+ * <p>
+ * 与{@link ReplaceBeanDefinitionRegistryPostProcessor}一样在{@link #postProcessBeanFactory}中处理,
+ * 并且先于它注册, 所以DEFINITION方式也能修改匹配到的bean定义.
+ */
+final class ReplaceTypeResolver implements BeanDefinitionRegistryPostProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplaceTypeResolver.class);
+
+    private final ConfigurableApplicationContext context;
+    private final ReplaceRegistry registry;
+
+    ReplaceTypeResolver(ConfigurableApplicationContext context, ReplaceRegistry registry) {
+        this.context = context;
+        this.registry = registry;
+    }
+
+    @Override
+    public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+        //这时还没有注册完所有定义, 不处理
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        StartupStep step = context.getApplicationStartup().start("replace.resolve.types");
+        Map<String, TypeBeans> index = index(beanFactory);
+        int matches = 0;
+        for (ReplaceCandidate candidate : registry.getTypeCandidates()) {
+            TypeBeans typeBeans = index.get(candidate.getSuperClassName());
+            List<String> beanNames = typeBeans != null ? typeBeans.beanNames : Collections.emptyList();
+            if (beanNames.isEmpty()) {
+                logger.warn("{}按类型替换, 但没有类型为{}的bean, 只匹配完全相同的类型, 没有替换的子类型bean:{}",
+                        candidate.getClassName(), candidate.getSuperClassName(), subtypeBeans(beanFactory, index, candidate));
+            }
+            for (String beanName : beanNames) {
+                registry.register(beanName, candidate, context);
+            }
+            matches += beanNames.size();
+            logger.info("{}按类型替换{}", candidate.getClassName(), beanNames);
+        }
+        registry.publish();
+        step.tag("types", String.valueOf(index.size())).tag("matches", String.valueOf(matches)).end();
+    }
+
+    /**
+     * 建立类型到beanName的索引. 类型为bean定义预测的类型(不提前实例化bean), 跳过抽象定义和FactoryBean;
+     * scope代理的目标bean以原beanName记录
+     */
+    private static Map<String, TypeBeans> index(ConfigurableListableBeanFactory beanFactory) {
+        Map<String, TypeBeans> index = new HashMap<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            try {
+                if (beanFactory.getMergedBeanDefinition(beanName).isAbstract() || beanFactory.isFactoryBean(beanName)) {
+                    continue;
+                }
+                Class<?> type = beanFactory.getType(beanName, false);
+                if (type != null) {
+                    String name = ScopedProxyUtils.isScopedTarget(beanName) ?
+                            ScopedProxyUtils.getOriginalBeanName(beanName) : beanName;
+                    Class<?> userClass = ClassUtils.getUserClass(type);
+                    index.computeIfAbsent(userClass.getName(), key -> new TypeBeans(userClass)).beanNames.add(name);
+                }
+            } catch (BeansException e) {
+                //类型无法确定的定义不参与按类型替换
+                logger.debug("无法确定{}的类型", beanName, e);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 类型为替换类父类的子类型的bean, 只用于没有匹配时的日志
+     */
+    private static List<String> subtypeBeans(ConfigurableListableBeanFactory beanFactory, Map<String, TypeBeans> index,
+                                             ReplaceCandidate candidate) {
+        Class<?> superClass;
+        try {
+            superClass = ClassUtils.forName(candidate.getSuperClassName(), beanFactory.getBeanClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>();
+        index.values().stream().filter(typeBeans -> superClass.isAssignableFrom(typeBeans.type))
+                .forEach(typeBeans -> result.addAll(typeBeans.beanNames));
+        return result;
+    }
+
+    /**
+     * 一个类型的所有beanName
+     */
+    private static final class TypeBeans {
+        private final Class<?> type;
+        private final List<String> beanNames = new ArrayList<>();
+
+        private TypeBeans(Class<?> type) {
+            this.type = type;
+        }
+    }
+}
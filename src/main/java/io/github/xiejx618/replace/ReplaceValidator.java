@@ -0,0 +1,116 @@
+package io.github.xiejx618.replace;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.metrics.StartupStep;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 启动时校验替换类(replace.fail-fast=true), 替换类配置错误时启动失败, 而不是在首次创建bean时才失败.
+ * <p>
+ * 所有bean定义注册完后({@link #postProcessBeanFactory}), 这时@PropertySource等配置源已经加入Environment,
+ * 按类型替换也已经匹配了beanName:
+ * <ol>
+ * <li>并行加载所有替换类(包括可切换方式中未选中的替换类), 推断构造函数, 转换@Value参数, 解析的实例化计划缓存在{@link ReplaceInfo}上,
+ * 首次创建bean时不再反射解析.</li>
+ * <li>检查必须的依赖bean是否存在.</li>
+ * </ol>
+ */
+final class ReplaceValidator implements BeanFactoryPostProcessor {
+    private final ConfigurableApplicationContext context;
+    private final ReplaceRegistry registry;
+
+    ReplaceValidator(ConfigurableApplicationContext context, ReplaceRegistry registry) {
+        this.context = context;
+        this.registry = registry;
+    }
+
+    /**
+     * 需要校验的替换: 选中的替换和可切换方式的所有候选替换类
+     */
+    private List<Map.Entry<String, ReplaceInfo>> targets() {
+        List<Map.Entry<String, ReplaceInfo>> targets = new ArrayList<>(registry.getReplaceMap().entrySet());
+        registry.getReplaceMap().forEach((beanName, replaceInfo) -> {
+            for (ReplaceInfo candidate : registry.getSwitchable(beanName)) {
+                if (candidate != replaceInfo) {
+                    targets.add(new AbstractMap.SimpleImmutableEntry<>(beanName, candidate));
+                }
+            }
+        });
+        return targets;
+    }
+
+    /**
+     * 并行解析所有替换类的实例化计划, 汇总所有错误后一起抛出
+     */
+    private void resolvePlans(List<Map.Entry<String, ReplaceInfo>> targets) {
+        StartupStep step = context.getApplicationStartup().start("replace.validate")
+                .tag("replacements", String.valueOf(targets.size()));
+        try {
+            String errors = targets.parallelStream()
+                    .map(this::resolvePlan).filter(Objects::nonNull).collect(Collectors.joining("\n"));
+            if (!errors.isEmpty()) {
+                throw new IllegalStateException("替换bean校验失败:\n" + errors);
+            }
+        } finally {
+            step.end();
+        }
+    }
+
+    private String resolvePlan(Map.Entry<String, ReplaceInfo> entry) {
+        try {
+            ReplaceInstanceSupplier.plan(entry.getValue(), context);
+            return null;
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return entry.getKey() + "=" + entry.getValue().print() + ": " + e.getMessage()
+                    + (cause != e ? "(" + cause + ")" : "");
+        }
+    }
+
+    /**
+     * 是否必须存在的单个bean依赖. Optional,ObjectProvider,集合,数组和@Lazy依赖允许没有候选bean
+     */
+    private static boolean isPlainDependency(DependencyDescriptor dependency) {
+        Class<?> type = dependency.getDependencyType();
+        return dependency.isRequired() && !type.isArray() && type != Optional.class
+                && !ObjectFactory.class.isAssignableFrom(type) && !Collection.class.isAssignableFrom(type)
+                && !Map.class.isAssignableFrom(type) && dependency.getAnnotation(Lazy.class) == null;
+    }
+
+    /**
+     * 是否存在依赖类型的bean. 先不提前初始化FactoryBean查找; 找不到时再允许提前初始化,
+     * 才能匹配到FactoryBean的产品类型和懒加载配置类中@Bean方法的返回类型
+     */
+    private static boolean hasCandidate(ConfigurableListableBeanFactory beanFactory, ResolvableType type) {
+        return beanFactory.getBeanNamesForType(type, true, false).length > 0
+                || beanFactory.getBeanNamesForType(type, true, true).length > 0;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        List<Map.Entry<String, ReplaceInfo>> targets = targets();
+        resolvePlans(targets);
+        StringBuilder errors = new StringBuilder();
+        for (Map.Entry<String, ReplaceInfo> target : targets) {
+            ReplaceInfo replaceInfo = target.getValue();
+            for (DependencyDescriptor dependency : ReplaceInstanceSupplier.plan(replaceInfo, context).getDependencies()) {
+                if (isPlainDependency(dependency) && !hasCandidate(beanFactory, dependency.getResolvableType())) {
+                    errors.append('\n').append(target.getKey()).append('=').append(replaceInfo.print())
+                            .append(": 找不到依赖的bean ").append(dependency.getResolvableType());
+                }
+            }
+        }
+        if (errors.length() > 0) {
+            throw new IllegalStateException("替换bean校验失败:" + errors);
+        }
+    }
+}
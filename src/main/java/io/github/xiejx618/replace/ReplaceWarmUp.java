@@ -0,0 +1,228 @@
+package io.github.xiejx618.replace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.ObjectUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 应用启动完成(ApplicationReadyEvent)后, 在后台预热还没有创建的懒加载替换单例bean, 避免首个请求承担替换类的实例化和初始化开销.
+ * <p>
+ * 替换bean按依赖关系分层, 依赖的替换bean所在层先完成, 同一层在有界线程池中并行创建. 启用就绪门控时,
+ * 预热完成前应用的就绪状态为REFUSING_TRAFFIC, 完成后(无论是否有失败)才变为ACCEPTING_TRAFFIC.
+ * <p>
+ * 就绪门控在收到ACCEPTING_TRAFFIC时发布REFUSING_TRAFFIC, 必须在记录就绪状态的ApplicationAvailabilityBean之后收到事件,
+ * 否则嵌套发布的REFUSING_TRAFFIC先被记录, 又被外层的ACCEPTING_TRAFFIC覆盖. 所以只注册为单例bean, 由上下文按bean名称注册为监听器,
+ * 不调用addApplicationListener: 监听器排序值相同时, 上下文创建bean时检测到的监听器实例(包括ApplicationAvailabilityBean)
+ * 排在只按bean名称注册的监听器之前.
+ */
+public class ReplaceWarmUp implements ApplicationListener<ApplicationEvent> {
+    public static final String BEAN_NAME = "io.github.xiejx618.replace.internalReplaceWarmUp";
+    private static final Logger logger = LoggerFactory.getLogger(ReplaceWarmUp.class);
+
+    /**
+     * 预热状态
+     */
+    public enum State {
+        PENDING, RUNNING, COMPLETED
+    }
+
+    private final ConfigurableApplicationContext context;
+    private final ReplaceRegistry registry;
+    private final int threads;
+    private final boolean readinessGate;
+
+    private volatile State state = State.PENDING;
+    private volatile int total;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile long startNanos;
+    private volatile long endNanos;
+    //每个bean的预热耗时(纳秒), 包括依赖和初始化
+    private final Map<String, Long> beanNanos = new ConcurrentHashMap<>();
+
+    ReplaceWarmUp(ConfigurableApplicationContext context, ReplaceRegistry registry, ReplaceProperties.WarmUp properties) {
+        this.context = context;
+        this.registry = registry;
+        this.threads = Math.max(1, properties.getThreads());
+        this.readinessGate = properties.isReadinessGate();
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationReadyEvent && ((ApplicationReadyEvent) event).getApplicationContext() == context
+                && state == State.PENDING) {
+            startNanos = System.nanoTime();
+            state = State.RUNNING;
+            Thread thread = new Thread(this::warmUp, "replace-warm-up");
+            thread.setDaemon(true);
+            thread.start();
+        } else if (readinessGate && event instanceof AvailabilityChangeEvent && event.getSource() == context
+                && ((AvailabilityChangeEvent<?>) event).getState() == ReadinessState.ACCEPTING_TRAFFIC
+                && state != State.COMPLETED) {
+            //预热完成前拒绝流量. 这时ApplicationAvailabilityBean已记录了ACCEPTING_TRAFFIC, 再记录REFUSING_TRAFFIC
+            AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+            //检查和发布之间预热可能已完成并发布了ACCEPTING_TRAFFIC, 被上面的REFUSING_TRAFFIC覆盖, 需要重新发布.
+            //预热线程先设置COMPLETED再发布, 这里没看到COMPLETED时, 预热线程的发布一定在REFUSING_TRAFFIC之后
+            if (state == State.COMPLETED && context.isActive()) {
+                AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC);
+            }
+        }
+    }
+
+    private void warmUp() {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new WarmUpThreadFactory());
+        try {
+            List<List<String>> levels = levels(context.getBeanFactory());
+            total = levels.stream().mapToInt(List::size).sum();
+            for (List<String> level : levels) {
+                List<Future<?>> futures = new ArrayList<>(level.size());
+                for (String beanName : level) {
+                    futures.add(executor.submit(() -> warmUpBean(beanName)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("替换bean预热失败", e);
+        } finally {
+            executor.shutdownNow();
+            endNanos = System.nanoTime();
+            state = State.COMPLETED;
+            logger.info("替换bean预热完成: {}个, 失败{}个, 耗时{}毫秒", completed.get(), failed.get(),
+                    TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
+            if (readinessGate && context.isActive()) {
+                AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC);
+            }
+        }
+    }
+
+    private void warmUpBean(String beanName) {
+        long start = System.nanoTime();
+        try {
+            context.getBean(beanName);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.warn("预热替换bean失败:{}", beanName, e);
+        } finally {
+            beanNanos.put(beanName, System.nanoTime() - start);
+            completed.incrementAndGet();
+        }
+    }
+
+    /**
+     * 需要预热的bean按依赖分层: 只依赖前面层的bean排在后面; 有循环依赖的bean放在最后一层
+     */
+    private List<List<String>> levels(ConfigurableListableBeanFactory beanFactory) {
+        Set<String> targets = new LinkedHashSet<>();
+        for (String beanName : registry.getReplaceMap().keySet()) {
+            if (beanFactory.containsBeanDefinition(beanName) && !beanFactory.containsSingleton(beanName)) {
+                BeanDefinition definition = beanFactory.getMergedBeanDefinition(beanName);
+                if (definition.isSingleton() && definition.isLazyInit() && !definition.isAbstract()) {
+                    targets.add(beanName);
+                }
+            }
+        }
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        for (String beanName : targets) {
+            Set<String> depends = new HashSet<>();
+            String[] dependsOn = beanFactory.getMergedBeanDefinition(beanName).getDependsOn();
+            if (!ObjectUtils.isEmpty(dependsOn)) {
+                depends.addAll(Arrays.asList(dependsOn));
+            }
+            try {
+                for (DependencyDescriptor dependency : ReplaceInstanceSupplier.plan(registry.get(beanName), context).getDependencies()) {
+                    depends.addAll(Arrays.asList(beanFactory.getBeanNamesForType(dependency.getResolvableType(), true, false)));
+                }
+            } catch (RuntimeException e) {
+                //解析失败时在预热该bean时记录错误
+                logger.debug("解析替换bean依赖失败:{}", beanName, e);
+            }
+            depends.retainAll(targets);
+            depends.remove(beanName);
+            dependencies.put(beanName, depends);
+        }
+        List<List<String>> levels = new ArrayList<>();
+        Set<String> done = new HashSet<>();
+        while (done.size() < targets.size()) {
+            List<String> level = new ArrayList<>();
+            for (String beanName : targets) {
+                if (!done.contains(beanName) && done.containsAll(dependencies.get(beanName))) {
+                    level.add(beanName);
+                }
+            }
+            if (level.isEmpty()) {
+                targets.stream().filter(beanName -> !done.contains(beanName)).forEach(level::add);
+            }
+            done.addAll(level);
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * 预热耗时(纳秒), 未开始时为0
+     */
+    public long getNanos() {
+        switch (state) {
+            case RUNNING:
+                return System.nanoTime() - startNanos;
+            case COMPLETED:
+                return endNanos - startNanos;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 每个bean的预热耗时(纳秒)
+     */
+    public Map<String, Long> getBeanNanos() {
+        return Collections.unmodifiableMap(beanNanos);
+    }
+
+    /**
+     * 预热线程, 守护线程, 不阻止应用退出
+     */
+    private static final class WarmUpThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "replace-warm-up-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.xiejx618.replace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 包装原bean的替换: 原bean正常创建和初始化后,
+ * 装饰方式({@link Replace.Mode#DECORATOR})使用替换类包装原bean, 可切换方式({@link Replace.Mode#SWITCHABLE})使用委托代理包装原bean.
+ * 只有注册了这两种方式的替换时才添加, 添加在Spring容器中声明的BeanPostProcessor之前, 所以AOP代理的是包装后的bean.
+ */
+public class ReplaceWrappingPostProcessor implements BeanPostProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplaceWrappingPostProcessor.class);
+
+    private final ConfigurableApplicationContext applicationContext;
+    private final ReplaceRegistry registry;
+    //没有可切换方式的替换时为null
+    private final ReplaceSwitcher switcher;
+
+    public ReplaceWrappingPostProcessor(ConfigurableApplicationContext applicationContext, ReplaceRegistry registry,
+                                        ReplaceSwitcher switcher) {
+        this.applicationContext = applicationContext;
+        this.registry = registry;
+        this.switcher = switcher;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        boolean scopedTarget = ScopedProxyUtils.isScopedTarget(beanName);
+        //经过了scope代理的bean只包装目标bean, 不包装scope代理
+        if (!scopedTarget && applicationContext.getBeanFactory().containsBeanDefinition(ScopedProxyUtils.getTargetBeanName(beanName))) {
+            return bean;
+        }
+        ReplaceInfo replaceInfo = registry.get(scopedTarget ? ScopedProxyUtils.getOriginalBeanName(beanName) : beanName);
+        //FactoryBean只包装其创建的对象
+        if (replaceInfo == null || bean instanceof FactoryBean) {
+            return bean;
+        }
+        if (replaceInfo.getMode() == Replace.Mode.DECORATOR) {
+            return ReplaceInstanceSupplier.decorate(replaceInfo, applicationContext, beanName, bean);
+        }
+        if (replaceInfo.getMode() == Replace.Mode.SWITCHABLE && switcher != null) {
+            //切换对所有注入方生效, 只支持单例
+            if (scopedTarget || !applicationContext.getBeanFactory().isSingleton(beanName)) {
+                logger.warn("{}不是单例, 不支持切换", beanName);
+                return bean;
+            }
+            return switcher.wrap(beanName, bean);
+        }
+        return bean;
+    }
+}
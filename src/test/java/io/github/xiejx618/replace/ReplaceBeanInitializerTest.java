@@ -0,0 +1,132 @@
+package io.github.xiejx618.replace;
+
+import io.github.xiejx618.replace.demo.App;
+import io.github.xiejx618.replace.demo.ext.BeanServiceExt;
+import io.github.xiejx618.replace.demo.ext.HelloServiceExt;
+import io.github.xiejx618.replace.demo.ext.TestServiceExt;
+import io.github.xiejx618.replace.demo.service.BeanService;
+import io.github.xiejx618.replace.demo.service.HelloService;
+import io.github.xiejx618.replace.demo.service.TestService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 替换注册表按上下文隔离: 并行创建多个上下文时每个上下文各自替换, 互不影响; 辅助上下文不处理
+ */
+class ReplaceBeanInitializerTest {
+    private static final int CONTEXTS = 16;
+
+    @BeforeAll
+    static void disableLogging() {
+        //多个上下文并行启动时不重复初始化日志系统
+        System.setProperty(LoggingSystem.SYSTEM_PROPERTY, LoggingSystem.NONE);
+    }
+
+    @AfterAll
+    static void restoreLogging() {
+        System.clearProperty(LoggingSystem.SYSTEM_PROPERTY);
+    }
+
+    @Test
+    void concurrentContexts() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        try {
+            List<Future<ConfigurableApplicationContext>> futures = new ArrayList<>();
+            for (int i = 0; i < CONTEXTS; i++) {
+                //奇数上下文关闭替换, 注册表泄漏到其它上下文时这些上下文的bean也会被替换
+                boolean enabled = i % 2 == 0;
+                futures.add(executor.submit(() -> new SpringApplicationBuilder(App.class)
+                        .web(WebApplicationType.NONE).logStartupInfo(false)
+                        .run("--replace.enabled=" + enabled)));
+            }
+            for (Future<ConfigurableApplicationContext> future : futures) {
+                contexts.add(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        try {
+            Set<ReplaceRegistry> registries = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (ConfigurableApplicationContext context : contexts) {
+                boolean enabled = context.getEnvironment().getProperty("replace.enabled", Boolean.class);
+                ReplaceRegistry registry = ReplaceRegistry.get(context);
+                assertEquals(enabled, registry != null);
+                assertEquals(enabled ? 1 : 0, replaceBeanPostProcessors(context));
+                if (enabled) {
+                    registries.add(registry);
+                    assertInstanceOf(HelloServiceExt.class, context.getBean(HelloService.class));
+                    assertInstanceOf(TestServiceExt.class, context.getBean(TestService.class));
+                    assertInstanceOf(BeanServiceExt.class, context.getBean(BeanService.class));
+                    assertTrue(registry.unReplacedBean().isEmpty(), registry.unReplacedBean()::toString);
+                } else {
+                    assertEquals(HelloService.class, context.getBean(HelloService.class).getClass());
+                    assertEquals(TestService.class, context.getBean(TestService.class).getClass());
+                    assertEquals(BeanService.class, context.getBean(BeanService.class).getClass());
+                }
+            }
+            assertEquals(CONTEXTS / 2, registries.size());
+        } finally {
+            contexts.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    @Test
+    void skipRefreshContext() {
+        GenericApplicationContext context = context();
+        context.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("refreshArgs", Collections.singletonMap("spring.main.web-application-type", "none")));
+        new ReplaceBeanInitializer().initialize(context);
+        assertNull(ReplaceRegistry.get(context));
+        assertEquals(0, replaceBeanPostProcessors(context));
+    }
+
+    @Test
+    void skipChildOfReplacedContext() {
+        GenericApplicationContext parent = context();
+        new ReplaceBeanInitializer().initialize(parent);
+        assertNotNull(ReplaceRegistry.get(parent));
+        GenericApplicationContext child = context();
+        child.setParent(parent);
+        new ReplaceBeanInitializer().initialize(child);
+        assertNull(ReplaceRegistry.get(child));
+        assertEquals(1, replaceBeanPostProcessors(parent));
+        assertEquals(0, replaceBeanPostProcessors(child));
+    }
+
+    @Test
+    void initializeOnce() {
+        GenericApplicationContext context = context();
+        ReplaceBeanInitializer initializer = new ReplaceBeanInitializer();
+        initializer.initialize(context);
+        ReplaceRegistry registry = ReplaceRegistry.get(context);
+        initializer.initialize(context);
+        assertSame(registry, ReplaceRegistry.get(context));
+        assertEquals(1, replaceBeanPostProcessors(context));
+    }
+
+    private static GenericApplicationContext context() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                Collections.singletonMap("replace.packages", "io.github.xiejx618.replace.demo.ext")));
+        return context;
+    }
+
+    private static long replaceBeanPostProcessors(ConfigurableApplicationContext context) {
+        return ((AbstractBeanFactory) context.getBeanFactory()).getBeanPostProcessors().stream()
+                .filter(ReplaceBeanPostProcessor.class::isInstance).count();
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.xiejx618.replace;
+
+import io.github.xiejx618.replace.demo.composed.GreeterServiceExt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * replace.scan.jars: 只扫描目录和文件名匹配的jar
+ */
+class ReplaceClasspathTest {
+    //只存在于测试jar中的包, 不受测试classpath的影响. 读取元数据不校验包路径与类名是否一致
+    private static final String PACKAGE = "replacejar";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void filterJarsByName() throws IOException {
+        Path dir = Files.createDirectories(temp.resolve("classes"));
+        URL matched = jar("replace-ext-1.0.jar").toUri().toURL();
+        URL other = jar("other-1.0.jar").toUri().toURL();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{matched, other, dir.toUri().toURL()}, null)) {
+            assertEquals(Arrays.asList("jar:" + matched + "!/", dir.toUri().toURL().toString()),
+                    ReplaceClasspath.roots(classLoader, Collections.singletonList("replace-*.jar")));
+            assertEquals(Collections.singletonList(dir.toUri().toURL().toString()),
+                    ReplaceClasspath.roots(classLoader, Collections.singletonList("none-*.jar")));
+        }
+    }
+
+    @Test
+    void scanMatchedJarsOnly() throws IOException {
+        URL[] urls = {jar("replace-ext-1.0.jar").toUri().toURL(), jar("other-1.0.jar").toUri().toURL()};
+        try (URLClassLoader classLoader = new URLClassLoader(urls, getClass().getClassLoader())) {
+            assertEquals(2, scan(classLoader, null));
+            assertEquals(1, scan(classLoader, Collections.singletonList("replace-*.jar")));
+        }
+    }
+
+    private static long scan(ClassLoader classLoader, List<String> jars) {
+        ReplaceProperties properties = new ReplaceProperties();
+        properties.setIndexEnabled(false);
+        properties.getScan().setShared(false);
+        properties.getScan().setJars(jars);
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            context.setClassLoader(classLoader);
+            return new ReplaceScanner(context, properties).scan(Collections.singletonList(PACKAGE)).stream()
+                    .filter(candidate -> GreeterServiceExt.class.getName().equals(candidate.getClassName())).count();
+        }
+    }
+
+    private Path jar(String name) throws IOException {
+        Path jar = temp.resolve(name);
+        String path = ClassUtils.convertClassNameToResourcePath(GreeterServiceExt.class.getName()) + ClassUtils.CLASS_FILE_SUFFIX;
+        try (OutputStream out = Files.newOutputStream(jar); JarOutputStream jarOut = new JarOutputStream(out);
+             InputStream in = new ClassPathResource(path).getInputStream()) {
+            //classpath*:通过类加载器查找包目录, 需要目录项
+            jarOut.putNextEntry(new JarEntry(PACKAGE + "/"));
+            jarOut.closeEntry();
+            jarOut.putNextEntry(new JarEntry(PACKAGE + "/" + StringUtils.getFilename(path)));
+            StreamUtils.copy(in, jarOut);
+            jarOut.closeEntry();
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.type.AnnotationMetadata;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 替换的生效条件: profiles, onProperty和onClass都满足时才替换, 不满足时不加载替换类
+ */
+class ReplaceConditionTest {
+    private static final String MISSING_CLASS = "io.github.xiejx618.replace.missing.NotExists";
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void matchProfiles() {
+        Map<String, Object> properties = mapping("profiles", "dev");
+        assertEquals(Greeter.class, refresh(properties).getBean("greeter").getClass());
+        context.close();
+        properties.put("spring.profiles.active", "dev");
+        assertInstanceOf(GreeterExt.class, refresh(properties).getBean("greeter"));
+    }
+
+    @Test
+    void matchOnProperty() {
+        Map<String, Object> properties = mapping("on-property", "greeter.ext");
+        assertEquals(Greeter.class, refresh(properties).getBean("greeter").getClass());
+        context.close();
+        properties.put("greeter.ext", "false");
+        assertEquals(Greeter.class, refresh(properties).getBean("greeter").getClass());
+        context.close();
+        properties.put("greeter.ext", "true");
+        assertInstanceOf(GreeterExt.class, refresh(properties).getBean("greeter"));
+        context.close();
+        //指定值时必须相等
+        properties.put("replace.mappings.greeter.on-property", "greeter.ext=on");
+        assertEquals(Greeter.class, refresh(properties).getBean("greeter").getClass());
+        context.close();
+        properties.put("greeter.ext", "on");
+        assertInstanceOf(GreeterExt.class, refresh(properties).getBean("greeter"));
+    }
+
+    @Test
+    void matchOnClass() {
+        assertInstanceOf(GreeterExt.class, refresh(mapping("on-class", Greeter.class.getName())).getBean("greeter"));
+        context.close();
+        assertEquals(Greeter.class, refresh(mapping("on-class", MISSING_CLASS)).getBean("greeter").getClass());
+        assertEquals(1, ReplaceRegistry.get(context).getUnmatchedCount());
+    }
+
+    @Test
+    void skipWithoutLoadingClass() {
+        //替换类不存在, 条件不满足时不加载, 启动不失败
+        Map<String, Object> properties = mapping("profiles", "dev");
+        properties.put("replace.mappings.greeter.class-name", MISSING_CLASS);
+        assertEquals(Greeter.class, refresh(properties).getBean("greeter").getClass());
+    }
+
+    @Test
+    void matchAnnotationConditions() {
+        ReplaceCandidate candidate = ReplaceCandidate.of(AnnotationMetadata.introspect(ConditionalGreeterExt.class));
+        assertNotNull(candidate);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("greeter.mode", "ext");
+        assertFalse(candidate.matches(context(properties)));
+        context.close();
+        properties.put("spring.profiles.active", "dev");
+        assertTrue(candidate.matches(context(properties)));
+        context.close();
+        properties.put("greeter.mode", "other");
+        assertFalse(candidate.matches(context(properties)));
+    }
+
+    private static Map<String, Object> mapping(String condition, String value) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.greeter.class-name", GreeterExt.class.getName());
+        properties.put("replace.mappings.greeter." + condition, value);
+        return properties;
+    }
+
+    private AnnotationConfigApplicationContext context(Map<String, Object> properties) {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", new HashMap<>(properties)));
+        return context;
+    }
+
+    private AnnotationConfigApplicationContext refresh(Map<String, Object> properties) {
+        context(properties);
+        new ReplaceBeanInitializer().initialize(context);
+        context.registerBean("greeter", Greeter.class);
+        context.refresh();
+        return context;
+    }
+
+    public static class Greeter {
+    }
+
+    public static class GreeterExt extends Greeter {
+    }
+
+    @Replace(value = "greeter", profiles = "dev", onProperty = "greeter.mode=ext", onClass = "io.github.xiejx618.replace.ReplaceConditionTest$Greeter")
+    public static class ConditionalGreeterExt extends Greeter {
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 装饰方式: 装饰类没有覆盖的方法转发到原bean, 而不是在装饰类自身上执行
+ */
+class ReplaceDecoratorTest {
+
+    @Test
+    void forwardNotOverriddenMethods() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.greeter.class-name", GreeterDecorator.class.getName());
+        properties.put("replace.mappings.greeter.mode", "decorator");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+            new ReplaceBeanInitializer().initialize(context);
+            context.registerBean("greeter", Greeter.class, () -> new Greeter("original"));
+            context.refresh();
+
+            Greeter greeter = context.getBean(Greeter.class);
+            assertInstanceOf(GreeterDecorator.class, greeter);
+            assertTrue(greeter.getClass().getName().endsWith(ReplaceSwitchableProxy.DECORATOR_CLASS_SUFFIX));
+            //覆盖的方法在装饰类上执行
+            assertEquals("[hello original]", greeter.hello());
+            //没有覆盖的方法转发到原bean, 装饰类自身的name为decorator
+            assertEquals("original", greeter.getName());
+            //装饰类构造函数中调用的未覆盖方法也转发到原bean
+            assertEquals("original", ((GreeterDecorator) greeter).nameInConstructor);
+        }
+    }
+
+    public static class Greeter {
+        private final String name;
+
+        public Greeter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String hello() {
+            return "hello " + name;
+        }
+    }
+
+    public static class GreeterDecorator extends Greeter {
+        private final Greeter delegate;
+        private final String nameInConstructor;
+
+        public GreeterDecorator(Greeter delegate) {
+            super("decorator");
+            this.delegate = delegate;
+            this.nameInConstructor = getName();
+        }
+
+        @Override
+        public String hello() {
+            return "[" + delegate.hello() + "]";
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * replace端点: 返回每个替换的生效情况和实例化统计, 有可切换方式的替换时可以切换实现
+ */
+class ReplaceEndpointTest {
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void describeReplacements() {
+        refresh("subclass");
+        ReplaceEndpoint endpoint = context.getBean(ReplaceEndpoint.class);
+        ReplaceEndpoint.ReplacementDescriptor before = endpoint.replacements().getReplacements().get(0);
+        assertEquals("greeter", before.getBeanName());
+        assertEquals(GreeterExt.class.getName(), before.getClassName());
+        assertEquals("constructor", before.getInstantiation());
+        assertFalse(before.isReplaced());
+        assertEquals(0, before.getInstantiationCount());
+
+        context.getBean("greeter");
+        ReplaceEndpoint.ReplaceDescriptor descriptor = endpoint.replacements();
+        ReplaceEndpoint.ReplacementDescriptor after = descriptor.getReplacements().get(0);
+        assertTrue(after.isReplaced());
+        assertEquals(1, after.getInstantiationCount());
+        assertNull(after.getPool());
+        assertNull(descriptor.getWarmUp());
+        assertTrue(descriptor.getSwitchables().isEmpty());
+        assertTrue(descriptor.getUnReplaced().isEmpty(), descriptor.getUnReplaced()::toString);
+        assertThrows(IllegalArgumentException.class, () -> endpoint.switchTo("greeter", GreeterExt.class.getName()));
+    }
+
+    @Test
+    void switchImplementation() {
+        refresh("switchable");
+        ReplaceEndpoint endpoint = context.getBean(ReplaceEndpoint.class);
+        Greeter greeter = context.getBean(Greeter.class);
+        ReplaceEndpoint.SwitchableDescriptor switchable = endpoint.replacements().getSwitchables().get(0);
+        assertEquals("greeter", switchable.getBeanName());
+        assertEquals(Greeter.class.getName(), switchable.getCurrent());
+        assertEquals(Arrays.asList(Greeter.class.getName(), GreeterExt.class.getName()), switchable.getCandidates());
+
+        ReplaceEndpoint.SwitchableDescriptor switched = endpoint.switchTo("greeter", GreeterExt.class.getName());
+        assertEquals(GreeterExt.class.getName(), switched.getCurrent());
+        assertEquals("hello ext", greeter.hello());
+        assertEquals(GreeterExt.class.getName(), endpoint.replacements().getSwitchables().get(0).getCurrent());
+    }
+
+    private void refresh(String mode) {
+        context = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.greeter.class-name", GreeterExt.class.getName());
+        properties.put("replace.mappings.greeter.mode", mode);
+        //端点需要暴露才会注册
+        properties.put("management.endpoints.web.exposure.include", "replace");
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        new ReplaceBeanInitializer().initialize(context);
+        context.registerBean("greeter", Greeter.class, bd -> bd.setLazyInit(true));
+        context.register(ReplaceEndpointAutoConfiguration.class);
+        context.refresh();
+    }
+
+    public static class Greeter {
+        public String hello() {
+            return "hello";
+        }
+    }
+
+    public static class GreeterExt extends Greeter {
+        @Override
+        public String hello() {
+            return "hello ext";
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 替换索引: 属性值中的分号,逗号和反斜杠转义后, 编码再解析得到相同的候选类
+ */
+class ReplaceIndexTest {
+
+    @Test
+    void roundTripWithSeparators() throws IOException {
+        ReplaceCandidate candidate = new ReplaceCandidate("org.demo.ext.HelloServiceExt", "org.demo.service.HelloService",
+                "hello;service", 5, "create,it\\", Replace.Mode.DECORATOR, true, new String[]{"dev", "te,st"},
+                new String[]{"a.list=x,y", "b.sep=;", "c.path=C:\\tmp"}, new String[]{"org.demo.A"}, 3);
+        //经过Properties写入和读取, 与索引文件相同
+        Properties properties = new Properties();
+        properties.setProperty(candidate.getClassName(), ReplaceIndex.encode(candidate));
+        StringWriter writer = new StringWriter();
+        properties.store(writer, null);
+        Properties loaded = new Properties();
+        loaded.load(new StringReader(writer.toString()));
+
+        ReplaceCandidate decoded = ReplaceIndex.decode(candidate.getClassName(), loaded.getProperty(candidate.getClassName()));
+        assertEquals(candidate.getSuperClassName(), decoded.getSuperClassName());
+        assertEquals("hello;service", decoded.getBeanName());
+        assertEquals(5, decoded.getOrder());
+        assertEquals("create,it\\", decoded.getInstantiateMethod());
+        assertEquals(Replace.Mode.DECORATOR, decoded.getMode());
+        assertTrue(decoded.isByType());
+        assertArrayEquals(new String[]{"dev", "te,st"}, decoded.getProfiles());
+        assertArrayEquals(new String[]{"a.list=x,y", "b.sep=;", "c.path=C:\\tmp"}, decoded.getOnProperty());
+        assertArrayEquals(new String[]{"org.demo.A"}, decoded.getOnClass());
+        assertEquals(3, decoded.getPoolSize());
+    }
+
+    @Test
+    void decodeOldFormat() {
+        ReplaceCandidate decoded = ReplaceIndex.decode("org.demo.ext.HelloServiceExt", "org.demo.service.HelloService;;0;");
+        assertEquals("helloService", decoded.getBeanName());
+        assertEquals(Replace.Mode.SUBCLASS, decoded.getMode());
+        assertFalse(decoded.isByType());
+        assertEquals(0, decoded.getProfiles().length);
+        assertEquals(0, decoded.getPoolSize());
+    }
+}
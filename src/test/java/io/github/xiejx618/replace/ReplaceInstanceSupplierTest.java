@@ -0,0 +1,108 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 替换类构造函数参数与Spring构造函数注入一致: 支持@Qualifier,泛型,Optional,ObjectProvider,集合和@Value;
+ * 原型bean再次实例化时使用同一个单例依赖
+ */
+class ReplaceInstanceSupplierTest {
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.client.class-name", ClientExt.class.getName());
+        properties.put("client.timeout", "30");
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        new ReplaceBeanInitializer().initialize(context);
+        context.registerBean("client", Client.class, bd -> bd.setScope(BeanDefinition.SCOPE_PROTOTYPE));
+        context.registerBean("primaryStore", StringStore.class);
+        context.registerBean("backupStore", StringStore.class);
+        context.registerBean("integerStore", IntegerStore.class);
+        context.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void resolveLikeConstructorInjection() {
+        ClientExt client = (ClientExt) context.getBean("client");
+        assertSame(context.getBean("backupStore"), client.backup);
+        assertSame(context.getBean("integerStore"), client.integerStore);
+        assertFalse(client.missing.isPresent());
+        assertNull(client.provider.getIfAvailable());
+        assertEquals(2, client.stores.size());
+        assertEquals(30, client.timeout);
+        assertSame(context.getEnvironment(), client.environment);
+    }
+
+    @Test
+    void reuseSingletonDependency() {
+        ClientExt first = (ClientExt) context.getBean("client");
+        ClientExt second = (ClientExt) context.getBean("client");
+        assertNotSame(first, second);
+        assertSame(first.backup, second.backup);
+        assertSame(first.integerStore, second.integerStore);
+        //与构造函数注入一样登记依赖关系, 使用已记住的bean名称时也登记
+        assertTrue(Arrays.asList(context.getBeanFactory().getDependentBeans("backupStore")).contains("client"));
+    }
+
+    public interface Store<T> {
+    }
+
+    public static class StringStore implements Store<String> {
+    }
+
+    public static class IntegerStore implements Store<Integer> {
+    }
+
+    public static class Missing {
+    }
+
+    public static class Client {
+    }
+
+    public static class ClientExt extends Client {
+        private final Store<String> backup;
+        private final Store<Integer> integerStore;
+        private final Optional<Missing> missing;
+        private final ObjectProvider<Missing> provider;
+        private final List<Store<String>> stores;
+        private final int timeout;
+        private final ConfigurableEnvironment environment;
+
+        public ClientExt(@Qualifier("backupStore") Store<String> backup, Store<Integer> integerStore,
+                         Optional<Missing> missing, ObjectProvider<Missing> provider, List<Store<String>> stores,
+                         @Value("${client.timeout}") int timeout, ConfigurableEnvironment environment) {
+            this.backup = backup;
+            this.integerStore = integerStore;
+            this.missing = missing;
+            this.provider = provider;
+            this.stores = stores;
+            this.timeout = timeout;
+            this.environment = environment;
+        }
+    }
+}
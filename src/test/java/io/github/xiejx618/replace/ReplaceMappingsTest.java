@@ -0,0 +1,86 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 配置方式的替换: 只配置replace.mappings, 不配置replace.packages时不扫描也能替换; bean-name优先于key
+ */
+class ReplaceMappingsTest {
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void replaceWithoutScanning() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.greeter.class-name", GreeterExt.class.getName());
+        refresh(properties);
+        assertInstanceOf(GreeterExt.class, context.getBean("greeter"));
+        assertEquals(Greeter.class, context.getBean("other").getClass());
+        ReplaceRegistry registry = ReplaceRegistry.get(context);
+        assertNotNull(registry);
+        assertEquals(0, registry.getScanResourceCount());
+        assertTrue(registry.unReplacedBean().isEmpty(), registry.unReplacedBean()::toString);
+    }
+
+    @Test
+    void beanNameOverridesKey() {
+        Map<String, Object> properties = new HashMap<>();
+        //key不是beanName时(如通过环境变量配置, key被转为小写), 在bean-name中指定原始beanName
+        properties.put("replace.mappings.custom.bean-name", "other");
+        properties.put("replace.mappings.custom.class-name", GreeterExt.class.getName());
+        refresh(properties);
+        assertInstanceOf(GreeterExt.class, context.getBean("other"));
+        assertEquals(Greeter.class, context.getBean("greeter").getClass());
+    }
+
+    @Test
+    void lowerOrderWins() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.greeter.class-name", GreeterExt.class.getName());
+        properties.put("replace.mappings.greeter.order", 10);
+        properties.put("replace.mappings.custom.bean-name", "greeter");
+        properties.put("replace.mappings.custom.class-name", OtherGreeterExt.class.getName());
+        properties.put("replace.mappings.custom.order", 1);
+        refresh(properties);
+        assertInstanceOf(OtherGreeterExt.class, context.getBean("greeter"));
+    }
+
+    @Test
+    void rejectMissingClassName() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.greeter.order", 1);
+        assertThrows(IllegalArgumentException.class, () -> refresh(properties));
+    }
+
+    private void refresh(Map<String, Object> properties) {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        new ReplaceBeanInitializer().initialize(context);
+        context.registerBean("greeter", Greeter.class);
+        context.registerBean("other", Greeter.class);
+        context.refresh();
+    }
+
+    public static class Greeter {
+    }
+
+    public static class GreeterExt extends Greeter {
+    }
+
+    public static class OtherGreeterExt extends Greeter {
+    }
+}
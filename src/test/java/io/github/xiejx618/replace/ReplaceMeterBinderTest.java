@@ -0,0 +1,80 @@
+package io.github.xiejx618.replace;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.metrics.buffering.BufferingApplicationStartup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 启动步骤和Micrometer指标: 绑定,扫描,注册和每次实例化都记录启动步骤; 指标在采集时读取注册表的计数器
+ */
+class ReplaceMeterBinderTest {
+    private final BufferingApplicationStartup startup = new BufferingApplicationStartup(10000);
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.setApplicationStartup(startup);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.greeter.class-name", GreeterExt.class.getName());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        new ReplaceBeanInitializer().initialize(context);
+        context.registerBean("greeter", Greeter.class, bd -> bd.setScope(BeanDefinition.SCOPE_PROTOTYPE));
+        context.register(ReplaceMetricsAutoConfiguration.class);
+        context.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void recordStartupSteps() {
+        context.getBean("greeter");
+        context.getBean("greeter");
+        List<String> steps = startup.getBufferedTimeline().getEvents().stream()
+                .map(event -> event.getStartupStep().getName()).filter(name -> name.startsWith("replace."))
+                .collect(Collectors.toList());
+        assertTrue(steps.contains("replace.properties.bind"), steps::toString);
+        assertTrue(steps.contains("replace.scan"), steps::toString);
+        assertTrue(steps.contains("replace.register"), steps::toString);
+        assertEquals(2, steps.stream().filter("replace.instantiate"::equals).count(), steps::toString);
+    }
+
+    @Test
+    void bindRegistryCounters() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        context.getBean(ReplaceMeterBinder.class).bindTo(meterRegistry);
+        assertEquals(1, meterRegistry.get("replace.beans").gauge().value());
+        FunctionTimer timer = meterRegistry.get("replace.instantiation").tag("bean", "greeter")
+                .tag("class", GreeterExt.class.getName()).functionTimer();
+        assertEquals(0, timer.count());
+        //指标随实例化更新, 不需要重新绑定
+        context.getBean("greeter");
+        context.getBean("greeter");
+        assertEquals(2, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    public static class Greeter {
+    }
+
+    public static class GreeterExt extends Greeter {
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.Scope;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 池化方式: 只有没有其它销毁回调的实例才放回池中, 已经close/@PreDestroy的实例不会再被getBean返回;
+ * scope代理的目标bean在scope结束时归还
+ */
+class ReplacePoolPostProcessorTest {
+    private static final String TEST_SCOPE = "test";
+    private AnnotationConfigApplicationContext context;
+    private final TestScope scope = new TestScope();
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        mapping(properties, "poolableParser", PoolableParserExt.class);
+        mapping(properties, "closeableParser", CloseableParserExt.class);
+        mapping(properties, "preDestroyParser", PreDestroyParserExt.class);
+        mapping(properties, "scopedParser", PoolableParserExt.class);
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        new ReplaceBeanInitializer().initialize(context);
+        for (String beanName : new String[]{"poolableParser", "closeableParser", "preDestroyParser"}) {
+            context.registerBean(beanName, Parser.class, bd -> bd.setScope(BeanDefinition.SCOPE_PROTOTYPE));
+        }
+        //scope代理: 目标bean名称为scopedTarget.scopedParser
+        context.getBeanFactory().registerScope(TEST_SCOPE, scope);
+        GenericBeanDefinition definition = new GenericBeanDefinition();
+        definition.setBeanClass(Parser.class);
+        definition.setScope(TEST_SCOPE);
+        BeanDefinitionHolder proxy = ScopedProxyUtils.createScopedProxy(new BeanDefinitionHolder(definition, "scopedParser"), context, true);
+        context.registerBeanDefinition(proxy.getBeanName(), proxy.getBeanDefinition());
+        context.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void reuseInstanceWithoutDestroyCallbacks() {
+        Parser first = context.getBean("poolableParser", Parser.class);
+        assertInstanceOf(PoolableParserExt.class, first);
+        context.getBeanFactory().destroyBean("poolableParser", first);
+        assertTrue(((PoolableParserExt) first).reset);
+        assertSame(first, context.getBean("poolableParser"));
+        assertEquals(1, pool("poolableParser").getReturns());
+        assertEquals(1, pool("poolableParser").getHits());
+    }
+
+    @Test
+    void discardClosedInstance() {
+        CloseableParserExt first = (CloseableParserExt) context.getBean("closeableParser");
+        context.getBeanFactory().destroyBean("closeableParser", first);
+        assertTrue(first.closed);
+        for (int i = 0; i < 4; i++) {
+            CloseableParserExt next = (CloseableParserExt) context.getBean("closeableParser");
+            assertNotSame(first, next);
+            assertFalse(next.closed);
+        }
+        assertEquals(0, pool("closeableParser").getReturns());
+        assertEquals(1, pool("closeableParser").getDiscards());
+    }
+
+    @Test
+    void discardPreDestroyedInstance() {
+        PreDestroyParserExt first = (PreDestroyParserExt) context.getBean("preDestroyParser");
+        context.getBeanFactory().destroyBean("preDestroyParser", first);
+        assertTrue(first.destroyed);
+        PreDestroyParserExt next = (PreDestroyParserExt) context.getBean("preDestroyParser");
+        assertNotSame(first, next);
+        assertFalse(next.destroyed);
+        assertEquals(0, pool("preDestroyParser").getIdle());
+    }
+
+    @Test
+    void returnScopedTarget() {
+        String targetBeanName = ScopedProxyUtils.getTargetBeanName("scopedParser");
+        Object first = context.getBean(targetBeanName);
+        assertInstanceOf(PoolableParserExt.class, first);
+        //scope结束时执行销毁回调, 按原beanName归还到池中
+        scope.end();
+        assertTrue(((PoolableParserExt) first).reset);
+        assertEquals(1, pool("scopedParser").getReturns());
+        assertSame(first, context.getBean(targetBeanName));
+        assertEquals(1, pool("scopedParser").getHits());
+    }
+
+    private ReplacePool pool(String beanName) {
+        return ReplaceRegistry.get(context).get(beanName).getPool();
+    }
+
+    private static void mapping(Map<String, Object> properties, String beanName, Class<?> clazz) {
+        properties.put("replace.mappings." + beanName + ".class-name", clazz.getName());
+        properties.put("replace.mappings." + beanName + ".pool-size", 4);
+    }
+
+    /**
+     * 测试用scope, end时执行已注册的销毁回调
+     */
+    private static final class TestScope implements Scope {
+        private final Map<String, Object> objects = new HashMap<>();
+        private final List<Runnable> callbacks = new ArrayList<>();
+
+        @Override
+        public Object get(String name, ObjectFactory<?> objectFactory) {
+            return objects.computeIfAbsent(name, key -> objectFactory.getObject());
+        }
+
+        @Override
+        public Object remove(String name) {
+            return objects.remove(name);
+        }
+
+        @Override
+        public void registerDestructionCallback(String name, Runnable callback) {
+            callbacks.add(callback);
+        }
+
+        @Override
+        public Object resolveContextualObject(String key) {
+            return null;
+        }
+
+        @Override
+        public String getConversationId() {
+            return TEST_SCOPE;
+        }
+
+        private void end() {
+            objects.clear();
+            callbacks.forEach(Runnable::run);
+            callbacks.clear();
+        }
+    }
+
+    public static class Parser {
+    }
+
+    public static class PoolableParserExt extends Parser implements ReplacePoolable {
+        private boolean reset;
+
+        @Override
+        public void resetForReuse() {
+            reset = true;
+        }
+    }
+
+    public static class CloseableParserExt extends Parser implements AutoCloseable {
+        private boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    public static class PreDestroyParserExt extends Parser {
+        private boolean destroyed;
+
+        @PreDestroy
+        public void destroy() {
+            destroyed = true;
+        }
+    }
+}
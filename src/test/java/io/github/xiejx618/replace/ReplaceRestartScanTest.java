@@ -0,0 +1,118 @@
+package io.github.xiejx618.replace;
+
+import io.github.xiejx618.replace.demo.composed.GreeterService;
+import io.github.xiejx618.replace.demo.composed.GreeterServiceExt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.devtools.restart.classloader.RestartClassLoader;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DevTools重启: 新的RestartClassLoader重新扫描时, 目录中没有变化的class文件复用上次的读取结果, 只重新读取修改过的文件
+ */
+class ReplaceRestartScanTest {
+    //只存在于临时目录中的包, 不受测试classpath的影响. 读取元数据不校验包路径与类名是否一致
+    private static final String PACKAGE = "replacerestart";
+
+    @TempDir
+    Path temp;
+    //重启时不变的父类加载器, 每个测试新建, 不受其它测试的读取结果影响
+    private URLClassLoader parent;
+    private URL[] urls;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        parent = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        copyClassFile(GreeterService.class);
+        copyClassFile(GreeterServiceExt.class);
+        urls = new URL[]{temp.toUri().toURL()};
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        parent.close();
+    }
+
+    @Test
+    void reuseUnchangedClassFiles() throws IOException {
+        ReplaceScanner first = restart();
+        assertEquals(1, first.getParsedCount());
+        assertEquals(0, first.getReusedCount());
+
+        ReplaceScanner second = restart();
+        assertEquals(0, second.getParsedCount());
+        assertEquals(2, second.getReusedCount());
+
+        Path ext = temp.resolve(PACKAGE).resolve("GreeterServiceExt.class");
+        Files.setLastModifiedTime(ext, FileTime.fromMillis(Files.getLastModifiedTime(ext).toMillis() + 2000));
+        ReplaceScanner modified = restart();
+        assertEquals(1, modified.getParsedCount());
+        assertEquals(1, modified.getReusedCount());
+
+        Files.delete(ext);
+        try (RestartClassLoader classLoader = new RestartClassLoader(parent, urls)) {
+            assertTrue(scan(classLoader).isEmpty());
+        }
+    }
+
+    @Test
+    void skipWithoutRestartClassLoader() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            try (URLClassLoader classLoader = new URLClassLoader(urls, parent)) {
+                ReplaceScanner scanner = scanner(classLoader);
+                assertEquals(1, scanner.scan(Collections.singletonList(PACKAGE)).size());
+                assertEquals(1, scanner.getParsedCount());
+                assertEquals(0, scanner.getReusedCount());
+            }
+        }
+    }
+
+    /**
+     * 模拟一次重启: 新的RestartClassLoader, 父类加载器不变
+     */
+    private ReplaceScanner restart() throws IOException {
+        try (RestartClassLoader classLoader = new RestartClassLoader(parent, urls)) {
+            ReplaceScanner scanner = scanner(classLoader);
+            List<ReplaceCandidate> candidates = scanner.scan(Collections.singletonList(PACKAGE));
+            assertEquals(1, candidates.size());
+            assertEquals(GreeterServiceExt.class.getName(), candidates.get(0).getClassName());
+            return scanner;
+        }
+    }
+
+    private static List<ReplaceCandidate> scan(ClassLoader classLoader) {
+        return scanner(classLoader).scan(Collections.singletonList(PACKAGE));
+    }
+
+    private static ReplaceScanner scanner(ClassLoader classLoader) {
+        ReplaceProperties properties = new ReplaceProperties();
+        properties.setIndexEnabled(false);
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.setClassLoader(classLoader);
+        return new ReplaceScanner(context, properties);
+    }
+
+    private void copyClassFile(Class<?> clazz) throws IOException {
+        String path = ClassUtils.convertClassNameToResourcePath(clazz.getName()) + ClassUtils.CLASS_FILE_SUFFIX;
+        Path target = Files.createDirectories(temp.resolve(PACKAGE)).resolve(clazz.getSimpleName() + ClassUtils.CLASS_FILE_SUFFIX);
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            Files.copy(in, target);
+        }
+    }
+}
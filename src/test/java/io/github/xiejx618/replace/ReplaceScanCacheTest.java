@@ -0,0 +1,87 @@
+package io.github.xiejx618.replace;
+
+import io.github.xiejx618.replace.demo.ext.HelloServiceExt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 磁盘扫描缓存: 指纹一致时读取缓存, class文件或影响扫描结果的配置变化后缓存失效
+ */
+class ReplaceScanCacheTest {
+    @TempDir
+    Path temp;
+
+    @Test
+    void readUntilClassFileChanged() throws IOException {
+        Path classes = temp.resolve("classes");
+        Path classFile = copyClassFile(HelloServiceExt.class, classes);
+        String location = classes.toUri().toString();
+        ReplaceScanCache cache = new ReplaceScanCache(temp.resolve("cache").toString(), true, null);
+        String fingerprint = cache.fingerprint(location);
+        assertNotNull(fingerprint);
+        assertNull(cache.read(location, fingerprint));
+
+        cache.write(location, fingerprint, Collections.singletonList(ReplaceCandidate.of(AnnotationMetadata.introspect(HelloServiceExt.class))));
+        assertEquals(fingerprint, cache.fingerprint(location));
+        List<ReplaceCandidate> cached = cache.read(location, fingerprint);
+        assertNotNull(cached);
+        assertEquals(1, cached.size());
+        assertEquals(HelloServiceExt.class.getName(), cached.get(0).getClassName());
+        assertEquals("helloService", cached.get(0).getBeanName());
+        assertEquals(0, cached.get(0).getOrder());
+
+        //修改时间变化
+        Files.setLastModifiedTime(classFile, FileTime.fromMillis(Files.getLastModifiedTime(classFile).toMillis() + 2000));
+        String modified = cache.fingerprint(location);
+        assertNotEquals(fingerprint, modified);
+        assertNull(cache.read(location, modified));
+
+        //新增class文件
+        cache.write(location, modified, cached);
+        copyClassFile(ReplaceScanCacheTest.class, classes);
+        String added = cache.fingerprint(location);
+        assertNotEquals(modified, added);
+        assertNull(cache.read(location, added));
+    }
+
+    @Test
+    void fingerprintIncludesSettings() throws IOException {
+        Path classes = temp.resolve("classes");
+        copyClassFile(HelloServiceExt.class, classes);
+        String location = classes.toUri().toString();
+        String dir = temp.resolve("cache").toString();
+        String fingerprint = new ReplaceScanCache(dir, true, null).fingerprint(location);
+        assertEquals(fingerprint, new ReplaceScanCache(dir, true, null).fingerprint(location));
+        assertNotEquals(fingerprint, new ReplaceScanCache(dir, false, null).fingerprint(location));
+        assertNotEquals(fingerprint, new ReplaceScanCache(dir, true, Collections.singletonList("replace-*.jar")).fingerprint(location));
+    }
+
+    @Test
+    void skipUnsupportedLocation() {
+        ReplaceScanCache cache = new ReplaceScanCache(temp.toString(), true, null);
+        assertNull(cache.fingerprint("http://localhost/classes/"));
+    }
+
+    private static Path copyClassFile(Class<?> clazz, Path classes) throws IOException {
+        String path = ClassUtils.convertClassNameToResourcePath(clazz.getName()) + ClassUtils.CLASS_FILE_SUFFIX;
+        Path target = classes.resolve(path);
+        Files.createDirectories(target.getParent());
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            Files.copy(in, target);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.xiejx618.replace;
+
+import io.github.xiejx618.replace.demo.composed.GreeterService;
+import io.github.xiejx618.replace.demo.composed.GreeterServiceExt;
+import io.github.xiejx618.replace.demo.composed.MyReplace;
+import io.github.xiejx618.replace.demo.ext.HelloServiceExt;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.core.metrics.buffering.StartupTimeline;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 扫描@Replace类: 预过滤不能跳过通过组合注解标注@Replace的类; 并行扫描的结果顺序与串行相同
+ */
+class ReplaceScannerTest {
+    private static final List<String> PACKAGES = Arrays.asList("io.github.xiejx618.replace.demo.ext",
+            "io.github.xiejx618.replace.demo.composed");
+
+    @Test
+    void preFilterKeepsComposedAnnotation() throws IOException {
+        assertTrue(ReplaceClassFilter.mayReplace(classFile(HelloServiceExt.class)));
+        assertTrue(ReplaceClassFilter.mayReplace(classFile(GreeterServiceExt.class)));
+        //只有JDK注解或没有注解的类可以跳过
+        assertFalse(ReplaceClassFilter.mayReplace(classFile(GreeterService.class)));
+        assertFalse(ReplaceClassFilter.mayReplace(classFile(ReplaceScannerTest.class)));
+        //注解本身标注了@Replace, 交给完整解析
+        assertTrue(ReplaceClassFilter.mayReplace(classFile(MyReplace.class)));
+    }
+
+    @Test
+    void scanComposedAnnotationWithPreFilter() {
+        ReplaceProperties properties = new ReplaceProperties();
+        //测试类编译时也会生成索引, 关闭索引才会扫描class文件
+        properties.setIndexEnabled(false);
+        properties.getScan().setPreFilter(true);
+        properties.getScan().setShared(false);
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            List<ReplaceCandidate> candidates = new ReplaceScanner(context, properties)
+                    .scan(Collections.singletonList(GreeterService.class.getPackage().getName()));
+            assertEquals(1, candidates.size());
+            ReplaceCandidate candidate = candidates.get(0);
+            assertEquals(GreeterServiceExt.class.getName(), candidate.getClassName());
+            assertEquals("greeterService", candidate.getBeanName());
+        }
+    }
+
+    @Test
+    void parallelScanKeepsOrder() {
+        List<String> serial = classNames(scan(1, null));
+        assertTrue(serial.size() > 2, serial::toString);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(serial, classNames(scan(4, null)));
+        }
+    }
+
+    @Test
+    void recordStepPerPackage() {
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(10000);
+        List<ReplaceCandidate> candidates = scan(4, startup);
+        List<StartupTimeline.TimelineEvent> events = startup.getBufferedTimeline().getEvents().stream()
+                .filter(event -> "replace.scan.package".equals(event.getStartupStep().getName()))
+                .collect(Collectors.toList());
+        //包依次扫描, 每个包一个步骤, 步骤不交错
+        assertEquals(PACKAGES, events.stream().map(event -> tag(event.getStartupStep(), "package")).collect(Collectors.toList()));
+        assertEquals(candidates.size(), events.stream().mapToInt(event -> Integer.parseInt(tag(event.getStartupStep(), "matches"))).sum());
+        for (int i = 1; i < events.size(); i++) {
+            assertFalse(events.get(i).getStartTime().isBefore(events.get(i - 1).getEndTime()));
+        }
+    }
+
+    private static List<ReplaceCandidate> scan(int parallelism, BufferingApplicationStartup startup) {
+        ReplaceProperties properties = new ReplaceProperties();
+        properties.setIndexEnabled(false);
+        properties.getScan().setParallelism(parallelism);
+        properties.getScan().setShared(false);
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            if (startup != null) {
+                context.setApplicationStartup(startup);
+            }
+            return new ReplaceScanner(context, properties).scan(PACKAGES);
+        }
+    }
+
+    private static List<String> classNames(List<ReplaceCandidate> candidates) {
+        return candidates.stream().map(ReplaceCandidate::getClassName).collect(Collectors.toList());
+    }
+
+    private static String tag(StartupStep step, String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals(key)) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static ClassPathResource classFile(Class<?> clazz) {
+        return new ClassPathResource(ClassUtils.convertClassNameToResourcePath(clazz.getName()) + ClassUtils.CLASS_FILE_SUFFIX);
+    }
+}
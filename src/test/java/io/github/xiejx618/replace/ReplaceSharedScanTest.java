@@ -0,0 +1,76 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.context.ContextCustomizer;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 扫描结果按类加载器共享, 同一类加载器上配置相同的多个上下文只扫描一次;
+ * 测试上下文缓存的key包含系统属性中的替换配置
+ */
+class ReplaceSharedScanTest {
+    private static final List<String> PACKAGES = Collections.singletonList("io.github.xiejx618.replace.demo.ext");
+    private static final String PROPERTY = "replace.scan.pre-filter";
+
+    @AfterEach
+    void clearProperty() {
+        System.clearProperty(PROPERTY);
+    }
+
+    @Test
+    void shareResultsPerClassLoader() throws IOException {
+        //新的类加载器, 不受其它测试共享结果的影响
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader())) {
+            ReplaceScanner first = scanner(classLoader, true);
+            List<ReplaceCandidate> candidates = first.scan(PACKAGES);
+            assertFalse(candidates.isEmpty());
+            assertTrue(first.getResourceCount() > 0);
+
+            ReplaceScanner second = scanner(classLoader, true);
+            assertSame(candidates, second.scan(PACKAGES));
+            assertEquals(0, second.getResourceCount());
+
+            //影响扫描结果的配置不同时不共享
+            ReplaceScanner other = scanner(classLoader, false);
+            List<ReplaceCandidate> unfiltered = other.scan(PACKAGES);
+            assertNotSame(candidates, unfiltered);
+            assertEquals(candidates.size(), unfiltered.size());
+            assertTrue(other.getResourceCount() > 0);
+
+            try (URLClassLoader another = new URLClassLoader(new URL[0], getClass().getClassLoader())) {
+                assertNotSame(candidates, scanner(another, true).scan(PACKAGES));
+            }
+        }
+    }
+
+    @Test
+    void keyTestContextsOnReplaceProperties() {
+        ReplaceContextCustomizerFactory factory = new ReplaceContextCustomizerFactory();
+        ContextCustomizer before = factory.createContextCustomizer(getClass(), Collections.emptyList());
+        assertEquals(before, factory.createContextCustomizer(getClass(), Collections.emptyList()));
+        assertEquals(before.hashCode(), factory.createContextCustomizer(getClass(), Collections.emptyList()).hashCode());
+        System.setProperty(PROPERTY, "false");
+        ContextCustomizer changed = factory.createContextCustomizer(getClass(), Collections.emptyList());
+        assertNotEquals(before, changed);
+        assertEquals(changed, factory.createContextCustomizer(getClass(), Collections.emptyList()));
+    }
+
+    private static ReplaceScanner scanner(ClassLoader classLoader, boolean preFilter) {
+        ReplaceProperties properties = new ReplaceProperties();
+        properties.setIndexEnabled(false);
+        properties.getScan().setPreFilter(preFilter);
+        //扫描只使用上下文的类加载器和资源加载, 不需要刷新
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.setClassLoader(classLoader);
+        return new ReplaceScanner(context, properties);
+    }
+}
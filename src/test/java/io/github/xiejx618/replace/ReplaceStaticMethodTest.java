@@ -0,0 +1,62 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 静态实例化方法: 返回类型必须是替换类或其父类型
+ */
+class ReplaceStaticMethodTest {
+    private final ClassLoader classLoader = getClass().getClassLoader();
+
+    @Test
+    void acceptSupertypeReturn() throws NoSuchMethodException {
+        assertEquals("(Lorg/springframework/core/env/ConfigurableEnvironment;)L" + Service.class.getName().replace('.', '/') + ";",
+                ReplaceStaticMethod.find(classLoader, ServiceExt.class.getName(), "instantiate").getDescriptor());
+        assertNotNull(ReplaceStaticMethod.find(classLoader, ServiceExt.class.getName(), "self"));
+        assertNotNull(ReplaceStaticMethod.find(classLoader, ServiceExt.class.getName(), "named"));
+    }
+
+    @Test
+    void rejectInvalidReturn() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ReplaceStaticMethod.find(classLoader, ServiceExt.class.getName(), "nothing"));
+        assertThrows(IllegalArgumentException.class,
+                () -> ReplaceStaticMethod.find(classLoader, ServiceExt.class.getName(), "count"));
+        assertThrows(IllegalArgumentException.class,
+                () -> ReplaceStaticMethod.find(classLoader, ServiceExt.class.getName(), "text"));
+    }
+
+    public interface Named {
+    }
+
+    public static class Service {
+    }
+
+    public static class ServiceExt extends Service implements Named {
+        public static Service instantiate(ConfigurableEnvironment environment) {
+            return new ServiceExt();
+        }
+
+        public static ServiceExt self() {
+            return new ServiceExt();
+        }
+
+        public static Named named() {
+            return new ServiceExt();
+        }
+
+        public static void nothing() {
+        }
+
+        public static int count() {
+            return 0;
+        }
+
+        public static String text() {
+            return "";
+        }
+    }
+}
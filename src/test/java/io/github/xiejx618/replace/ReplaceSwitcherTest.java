@@ -0,0 +1,96 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 可切换方式: 切换到替换类, 再切换回原bean; 不是候选实现的类名拒绝切换. 原bean为CGLIB代理时按用户类生成委托代理
+ */
+class ReplaceSwitcherTest {
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.mappings.greeter.class-name", GreeterExt.class.getName());
+        properties.put("replace.mappings.greeter.mode", "switchable");
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        new ReplaceBeanInitializer().initialize(context);
+        //原bean为CGLIB代理, 如@Transactional的bean
+        context.registerBean("greeter", Greeter.class, () -> {
+            ProxyFactory proxyFactory = new ProxyFactory(new Greeter());
+            proxyFactory.setProxyTargetClass(true);
+            return (Greeter) proxyFactory.getProxy();
+        });
+        context.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void switchToReplacementAndBack() {
+        ReplaceSwitcher switcher = context.getBean(ReplaceSwitcher.class);
+        Greeter greeter = context.getBean(Greeter.class);
+        assertInstanceOf(ReplaceSwitchable.class, greeter);
+        assertEquals("hello", greeter.hello());
+        assertEquals(Arrays.asList(Greeter.class.getName(), GreeterExt.class.getName()), switcher.getCandidates("greeter"));
+        assertEquals(Greeter.class.getName(), switcher.getCurrent().get("greeter"));
+
+        switcher.switchTo("greeter", GreeterExt.class.getName());
+        assertEquals("hello ext", greeter.hello());
+        assertEquals(GreeterExt.class.getName(), switcher.getCurrent().get("greeter"));
+        Object replacement = ((ReplaceSwitchable) greeter).getReplaceDelegate();
+
+        switcher.switchTo("greeter", Greeter.class.getName());
+        assertEquals("hello", greeter.hello());
+        assertEquals(Greeter.class.getName(), switcher.getCurrent().get("greeter"));
+
+        //替换类实例只创建一次
+        switcher.switchTo("greeter", GreeterExt.class.getName());
+        assertSame(replacement, ((ReplaceSwitchable) greeter).getReplaceDelegate());
+    }
+
+    @Test
+    void rejectNonCandidate() {
+        ReplaceSwitcher switcher = context.getBean(ReplaceSwitcher.class);
+        Greeter greeter = context.getBean(Greeter.class);
+        assertThrows(IllegalArgumentException.class, () -> switcher.switchTo("greeter", OtherGreeter.class.getName()));
+        assertThrows(IllegalArgumentException.class, () -> switcher.switchTo("unknown", GreeterExt.class.getName()));
+        //拒绝后保持当前实现
+        assertEquals("hello", greeter.hello());
+    }
+
+    public static class Greeter {
+        public String hello() {
+            return "hello";
+        }
+    }
+
+    public static class GreeterExt extends Greeter {
+        @Override
+        public String hello() {
+            return "hello ext";
+        }
+    }
+
+    public static class OtherGreeter extends Greeter {
+        @Override
+        public String hello() {
+            return "hello other";
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 启动时校验(replace.fail-fast=true): 懒加载的替换bean缺少依赖或替换类不存在时, 刷新上下文就失败
+ */
+class ReplaceValidatorTest {
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void failOnMissingDependency() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> refresh(mapping(ClientExt.class.getName(), true), false));
+        assertTrue(e.getMessage().contains("client"), e.getMessage());
+        assertTrue(e.getMessage().contains(Dependency.class.getName()), e.getMessage());
+    }
+
+    @Test
+    void failOnMissingClass() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> refresh(mapping("io.github.xiejx618.replace.missing.ClientExt", true), true));
+        assertTrue(e.getMessage().contains("io.github.xiejx618.replace.missing.ClientExt"), e.getMessage());
+    }
+
+    @Test
+    void passWithDependency() {
+        refresh(mapping(ClientExt.class.getName(), true), true);
+        ClientExt client = (ClientExt) context.getBean("client");
+        assertSame(context.getBean(Dependency.class), client.dependency);
+        assertFalse(client.optional.isPresent());
+    }
+
+    @Test
+    void deferErrorsWithoutFailFast() {
+        //未启用时, 懒加载的替换bean首次获取时才失败
+        refresh(mapping(ClientExt.class.getName(), false), false);
+        assertThrows(RuntimeException.class, () -> context.getBean("client"));
+    }
+
+    private static Map<String, Object> mapping(String className, boolean failFast) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("replace.fail-fast", failFast);
+        properties.put("replace.mappings.client.class-name", className);
+        return properties;
+    }
+
+    private void refresh(Map<String, Object> properties, boolean withDependency) {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        new ReplaceBeanInitializer().initialize(context);
+        context.registerBean("client", Client.class, bd -> bd.setLazyInit(true));
+        if (withDependency) {
+            context.registerBean("dependency", Dependency.class);
+        }
+        context.refresh();
+    }
+
+    public static class Dependency {
+    }
+
+    public static class Other {
+    }
+
+    public static class Client {
+    }
+
+    public static class ClientExt extends Client {
+        private final Dependency dependency;
+        private final Optional<Other> optional;
+
+        public ClientExt(Dependency dependency, Optional<Other> optional) {
+            this.dependency = dependency;
+            this.optional = optional;
+        }
+    }
+}
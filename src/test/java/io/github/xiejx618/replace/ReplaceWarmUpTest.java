@@ -0,0 +1,84 @@
+package io.github.xiejx618.replace;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.availability.ApplicationAvailabilityAutoConfiguration;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预热就绪门控: 预热完成前ApplicationAvailability的就绪状态为REFUSING_TRAFFIC, 完成后为ACCEPTING_TRAFFIC
+ */
+class ReplaceWarmUpTest {
+    private static final CountDownLatch STARTED = new CountDownLatch(1);
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+    @BeforeAll
+    static void disableLogging() {
+        System.setProperty(LoggingSystem.SYSTEM_PROPERTY, LoggingSystem.NONE);
+    }
+
+    @AfterAll
+    static void restoreLogging() {
+        System.clearProperty(LoggingSystem.SYSTEM_PROPERTY);
+    }
+
+    @Test
+    void refuseTrafficUntilWarmedUp() throws InterruptedException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(WarmUpApp.class)
+                .web(WebApplicationType.NONE).logStartupInfo(false)
+                .initializers(ctx -> ((GenericApplicationContext) ctx).registerBean("slowService", SlowService.class,
+                        bd -> bd.setLazyInit(true)))
+                .run("--replace.packages=io.github.xiejx618.replace.demo.composed",
+                        "--replace.mappings.slowService.class-name=" + SlowServiceExt.class.getName(),
+                        "--replace.warm-up.enabled=true", "--replace.warm-up.readiness-gate=true")) {
+            ApplicationAvailability availability = context.getBean(ApplicationAvailability.class);
+            ReplaceWarmUp warmUp = context.getBean(ReplaceWarmUp.class);
+            try {
+                assertTrue(STARTED.await(10, TimeUnit.SECONDS));
+                assertEquals(ReplaceWarmUp.State.RUNNING, warmUp.getState());
+                assertEquals(ReadinessState.REFUSING_TRAFFIC, availability.getReadinessState());
+            } finally {
+                RELEASE.countDown();
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (availability.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(ReplaceWarmUp.State.COMPLETED, warmUp.getState());
+            assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+            assertEquals(1, warmUp.getCompleted());
+            assertEquals(0, warmUp.getFailed());
+            assertInstanceOf(SlowServiceExt.class, context.getBean("slowService"));
+        }
+    }
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration(ApplicationAvailabilityAutoConfiguration.class)
+    static class WarmUpApp {
+    }
+
+    public static class SlowService {
+    }
+
+    public static class SlowServiceExt extends SlowService {
+        public SlowServiceExt() throws InterruptedException {
+            STARTED.countDown();
+            //等待测试读取预热期间的就绪状态
+            RELEASE.await(10, TimeUnit.SECONDS);
+        }
+    }
+}
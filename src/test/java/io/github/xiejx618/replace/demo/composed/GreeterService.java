@@ -0,0 +1,11 @@
+package io.github.xiejx618.replace.demo.composed;
+
+/**
+ * 只有JDK注解, 预过滤时不完整解析
+ */
+@Deprecated
+public class GreeterService {
+    public String greet() {
+        return "hello";
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.xiejx618.replace.demo.composed;
+
+@SuppressWarnings("deprecation")
+@MyReplace("greeterService")
+public class GreeterServiceExt extends GreeterService {
+    @Override
+    public String greet() {
+        return "hello ext";
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.xiejx618.replace.demo.composed;
+
+import io.github.xiejx618.replace.Replace;
+import org.springframework.core.annotation.AliasFor;
+
+import java.lang.annotation.*;
+
+/**
+ * 组合注解, 间接标注@Replace
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+@Replace
+public @interface MyReplace {
+    @AliasFor(annotation = Replace.class, attribute = "value")
+    String value() default "";
+}
@@ -0,0 +1,13 @@
+package org.springframework.boot.devtools.restart.classloader;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * 测试用的DevTools重启类加载器, 只有类名和构造函数与DevTools一致. 组件按类名识别重启类加载器, 测试不需要依赖DevTools
+ */
+public class RestartClassLoader extends URLClassLoader {
+    public RestartClassLoader(ClassLoader parent, URL[] urls) {
+        super(urls, parent);
+    }
+}